@@ -0,0 +1,225 @@
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * The {@code AdmissionControl} class bounds and orders the work of follow mode when commands arrive faster than they can be
+ * executed. Every command is put into the queue of its class, and queued commands are executed class by class:
+ * <ol>
+ *     <li>transactions: {@code INIT_VOYAGE}, {@code SELL_TICKET}, {@code REFUND_TICKET}, {@code HOLD_SEAT},
+ *     {@code CONFIRM_HOLD}, {@code WAITLIST}, {@code CANCEL_WAITLIST}, {@code CANCEL_VOYAGE} and unknown commands,</li>
+ *     <li>voyage queries: {@code PRINT_VOYAGE},</li>
+ *     <li>fleet reports: {@code Z_REPORT}, {@code TOP_REVENUE}, {@code TOP_OCCUPANCY}, {@code RANGE_REPORT},
+ *     {@code REVENUE_REPORT} and {@code EXPORT}.</li>
+ * </ol>
+ * Transactions keep their order among each other, so a sale never overtakes the initialization of its voyage, but they
+ * overtake queries and reports that arrived before them. A sale therefore waits for at most one query or report that is
+ * already running, however many reports are queued.
+ *
+ * <p>Work is shed deterministically, lowest priority first: a command that arrives while the queue of its class is full is
+ * rejected, and a query or report that has waited longer than the latency target by the time its turn comes is rejected
+ * instead of executed. Transactions are never rejected for waiting. A rejected command is echoed as usual, followed by an
+ * error line. The number of rejected commands of every class is reported when follow mode stops.
+ *
+ * <p>Admission control is enabled by the system property {@value #TARGET_PROPERTY}, the latency target in milliseconds. The
+ * queue limits of the three classes can be set with {@value #LIMITS_PROPERTY}, for example "100000,1000,100".
+ */
+public class AdmissionControl {
+    public static final String TARGET_PROPERTY = "busbooking.admission.target";
+    public static final String LIMITS_PROPERTY = "busbooking.admission.limits";
+    public static final int TRANSACTIONS = 0;
+    public static final int VOYAGE_QUERIES = 1;
+    public static final int FLEET_REPORTS = 2;
+    private static final String[] CLASS_NAMES = {"transactions", "voyage queries", "fleet reports"};
+    private static final int[] DEFAULT_LIMITS = {100_000, 1_000, 100};
+
+    /**
+     * A queued command and the time it arrived.
+     */
+    private static final class Queued {
+        private final String line;
+        private final long arrival;
+
+        Queued(String line, long arrival) {
+            this.line = line;
+            this.arrival = arrival;
+        }
+    }
+
+    private final long targetNanos;
+    private final int[] limits;
+    private final ArrayDeque<Queued>[] queues;
+    private final long[] executed = new long[CLASS_NAMES.length];
+    private final long[] shed = new long[CLASS_NAMES.length];
+    private final long[] longestWaitNanos = new long[CLASS_NAMES.length];
+
+    /**
+     * Creates an admission control.
+     *
+     * @param targetMillis the longest time a query or report may wait before it is rejected
+     * @param limits       the queue limits of the transactions, voyage queries and fleet reports
+     */
+    @SuppressWarnings("unchecked")
+    public AdmissionControl(long targetMillis, int[] limits) {
+        this.targetNanos = targetMillis * 1_000_000;
+        this.limits = limits.clone();
+        this.queues = (ArrayDeque<Queued>[]) new ArrayDeque<?>[CLASS_NAMES.length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Creates the admission control configured by the system properties.
+     *
+     * @return the admission control, or null if {@value #TARGET_PROPERTY} is not set
+     * @throws UsageException if a property has an invalid value
+     */
+    public static AdmissionControl fromProperties() {
+        String target = System.getProperty(TARGET_PROPERTY);
+        if (target == null) {
+            return null;
+        }
+        long targetMillis = parseLimit(target, TARGET_PROPERTY);
+        int[] limits = DEFAULT_LIMITS;
+        String limitList = System.getProperty(LIMITS_PROPERTY);
+        if (limitList != null) {
+            String[] values = limitList.split(",");
+            if (values.length != CLASS_NAMES.length) {
+                throw new UsageException("ERROR: " + LIMITS_PROPERTY + " must list " + CLASS_NAMES.length + " queue limits separated by commas! Program is going to terminate!");
+            }
+            limits = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                limits[i] = (int) Math.min(Integer.MAX_VALUE, parseLimit(values[i].trim(), LIMITS_PROPERTY));
+            }
+        }
+        return new AdmissionControl(targetMillis, limits);
+    }
+
+    private static long parseLimit(String value, String property) {
+        try {
+            long limit = Long.parseLong(value);
+            if (limit > 0) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new UsageException("ERROR: " + value + " is not a positive integer, " + property + " must be a positive integer! Program is going to terminate!");
+    }
+
+    /**
+     * Finds the class of a command.
+     *
+     * @param line the command line
+     * @return {@link #TRANSACTIONS}, {@link #VOYAGE_QUERIES} or {@link #FLEET_REPORTS}
+     */
+    static int classify(String line) {
+        int end = line.indexOf('\t');
+        switch (end < 0 ? line : line.substring(0, end)) {
+            case "PRINT_VOYAGE":
+                return VOYAGE_QUERIES;
+            case "Z_REPORT":
+            case "TOP_REVENUE":
+            case "TOP_OCCUPANCY":
+            case "RANGE_REPORT":
+            case "REVENUE_REPORT":
+            case "EXPORT":
+                return FLEET_REPORTS;
+            default:
+                return TRANSACTIONS;
+        }
+    }
+
+    /**
+     * Queues a command, or rejects it if the queue of its class is full.
+     *
+     * @param line the command line
+     * @param args Command-line arguments used for specifying output paths for logging.
+     * @return true if the command has been queued
+     */
+    public boolean offer(String line, String[] args) {
+        int commandClass = classify(line);
+        if (queues[commandClass].size() >= limits[commandClass]) {
+            reject(commandClass, line, args);
+            return false;
+        }
+        queues[commandClass].add(new Queued(line, System.nanoTime()));
+        return true;
+    }
+
+    /**
+     * Executes the queued commands, highest class first, and rejects the queries and reports that waited too long.
+     *
+     * @param executor executes a command and tells whether it was a Z report. It must report a failing command itself instead
+     *                 of throwing, so the rest of the queue is still executed.
+     * @param args     Command-line arguments used for specifying output paths for logging.
+     * @return whether the last command that was executed or rejected was an executed Z report, or null if nothing was queued
+     */
+    public Boolean drain(Predicate<String> executor, String[] args) {
+        Boolean lastIsZReport = null;
+        for (int commandClass = nextClass(); commandClass >= 0; commandClass = nextClass()) {
+            Queued command = queues[commandClass].poll();
+            long waited = System.nanoTime() - command.arrival;
+            if (commandClass != TRANSACTIONS && waited > targetNanos) {
+                reject(commandClass, command.line, args);
+                lastIsZReport = false;
+                continue;
+            }
+            longestWaitNanos[commandClass] = Math.max(longestWaitNanos[commandClass], waited);
+            executed[commandClass]++;
+            lastIsZReport = executor.test(command.line);
+        }
+        return lastIsZReport;
+    }
+
+    private int nextClass() {
+        for (int commandClass = 0; commandClass < queues.length; commandClass++) {
+            if (!queues[commandClass].isEmpty()) {
+                return commandClass;
+            }
+        }
+        return -1;
+    }
+
+    private void reject(int commandClass, String line, String[] args) {
+        shed[commandClass]++;
+        String[] parts = line.split("\\t");
+        FileOutput.writeToFile(args[1], "COMMAND: " + line, true, true);
+        FileOutput.writeToFile(args[1], "ERROR: The booking system is overloaded, \"" + parts[0] + "\" command was rejected!", true, true);
+    }
+
+    /**
+     * Returns the number of rejected commands of a class.
+     *
+     * @param commandClass {@link #TRANSACTIONS}, {@link #VOYAGE_QUERIES} or {@link #FLEET_REPORTS}
+     * @return the number of commands that have been shed
+     */
+    public long getShed(int commandClass) {
+        return shed[commandClass];
+    }
+
+    /**
+     * Returns the number of executed commands of a class.
+     *
+     * @param commandClass {@link #TRANSACTIONS}, {@link #VOYAGE_QUERIES} or {@link #FLEET_REPORTS}
+     * @return the number of commands that have been executed
+     */
+    public long getExecuted(int commandClass) {
+        return executed[commandClass];
+    }
+
+    /**
+     * Describes how many commands of every class have been executed and shed, and the longest time they waited.
+     *
+     * @return one line per class
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (int commandClass = 0; commandClass < CLASS_NAMES.length; commandClass++) {
+            summary.append(String.format(Locale.US, "Admission control: %d %s executed, %d shed, longest wait %.3f ms.%n",
+                    executed[commandClass], CLASS_NAMES[commandClass], shed[commandClass], longestWaitNanos[commandClass] / 1e6));
+        }
+        return summary.toString();
+    }
+}
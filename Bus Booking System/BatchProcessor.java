@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code BatchProcessor} class processes many input and output file pairs in a single JVM.
+ * The pairs are listed in a manifest file, one tab separated pair per line, and are processed in parallel, each with its own
+ * isolated {@code BookingSystem}. A failing file is reported in the summary without stopping the rest of the batch.
+ *
+ * <p>Sample usage: {@code java BookingSystem --batch manifest.txt [threads]}
+ */
+public class BatchProcessor {
+    /**
+     * Runs a batch described by the command line arguments and prints one summary line per file.
+     * The program exits with status 1 if the manifest cannot be used, or with status 2 if any file failed.
+     *
+     * @param args "--batch", the path to the manifest file and optionally the number of worker threads.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("ERROR: Batch mode works with the path to a manifest file and an optional number of threads. Sample usage can be as follows: \"java BookingSystem --batch manifest.txt 8\". Program is going to terminate!");
+            System.exit(1);
+        }
+        String[] manifest = FileInput.readFile(args[1], true, true);
+        if (manifest == null) {
+            System.err.println("ERROR: This program cannot read from \"" + args[1] + "\", either this program does not have read permission to read that file or file does not exist. Program is going to terminate!");
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length == 3) {
+            try {
+                threads = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads <= 0) {
+                System.err.println("ERROR: " + args[2] + " is not a positive integer, number of threads must be a positive integer! Program is going to terminate!");
+                System.exit(1);
+            }
+        }
+
+        List<String> results = process(manifest, threads);
+        boolean failed = false;
+        for (String result : results) {
+            System.out.println(result);
+            failed |= result.startsWith("ERROR");
+        }
+        if (failed) {
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Processes every pair of the manifest on a pool of worker threads.
+     *
+     * @param manifest the manifest lines, each holding an input path and an output path separated by a tab.
+     * @param threads  the number of worker threads.
+     * @return one summary line per manifest line, in manifest order.
+     */
+    public static List<String> process(String[] manifest, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new ArrayList<>();
+        for (String entry : manifest) {
+            futures.add(executor.submit(() -> processEntry(entry)));
+        }
+        List<String> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add("ERROR\t" + manifest[i] + "\t" + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Processes a single manifest line and describes the outcome.
+     *
+     * @param entry a manifest line holding an input path and an output path separated by a tab.
+     * @return "OK", the paths and the elapsed time, or "ERROR", the entry and the reason of the failure.
+     */
+    private static String processEntry(String entry) {
+        String[] paths = entry.split("\\t");
+        if (paths.length != 2) {
+            return "ERROR\t" + entry + "\tErroneous manifest line, an input path and an output path separated by a tab are expected!";
+        }
+        long start = System.nanoTime();
+        try {
+            BookingSystem.runIsolated(paths);
+        } catch (UsageException e) {
+            return "ERROR\t" + paths[0] + "\t" + paths[1] + "\t" + e.getReason() + " This file is skipped, the rest of the batch goes on!";
+        } catch (RuntimeException e) {
+            return "ERROR\t" + paths[0] + "\t" + paths[1] + "\t" + e;
+        }
+        return String.format(Locale.US, "OK\t%s\t%s\t%.2f ms", paths[0], paths[1], (System.nanoTime() - start) / 1e6);
+    }
+}
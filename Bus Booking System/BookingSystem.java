@@ -1,46 +1,664 @@
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The {@code BookingSystem} class serves as the entry point and main controller for the bus reservation system.
  * It manages a collection of {@code Bus} objects and supports various operations such as adding or removing buses,
  * and retrieving buses by their IDs.
+ * Each thread works on its own {@code BookingSystem} instance, so that several input files can be processed side by side
+ * without sharing voyages; the static methods always operate on the instance of the calling thread.
+ *
+ * <p>Every command that changes a voyage publishes a new version of it. Reports read the voyages through a
+ * {@link Snapshot}, which pins the version that was current when it was opened, so a report is consistent across all
+ * voyages and never waits for, or holds up, the commands that run next to it.
+ *
+ * <p>When {@link #useVoyageStore()} has been called, idle voyages beyond {@value #RESIDENT_PROPERTY} are moved into a
+ * {@link VoyageStore} between commands and only become {@code Bus} objects again when a command or report needs them.
+ * This is only done for booking systems that run their commands on one thread, since a command must not keep a reference
+ * to a voyage after it returns.
  */
 
 public class BookingSystem {
+    public static final String CLOCK_PROPERTY = "busbooking.clock";
+    public static final String RESIDENT_PROPERTY = "busbooking.store.resident";
+    static final int DEFAULT_RESIDENT_VOYAGES = 1024;
+    /**
+     * The resolution of the hold timers: holds expire at the first tick after their time has come.
+     */
+    static final long HOLD_TICK_MILLIS = 100;
+    private static final ThreadLocal<BookingSystem> CURRENT = ThreadLocal.withInitial(BookingSystem::new);
+
     /**
      * The main method that serves as the entry point of the application.
      * It processes command-line arguments to execute various operations within the bus booking system.
      *
-     * @param args the command line arguments, where args[0] is the input file path and args[1] is the output file path.
+     * @param args the command line arguments, where args[0] is the input file path and args[1] is the output file path,
+     *             "--batch" followed by the path to a manifest of input and output file pairs,
+     *             "--follow" followed by the paths of an input file that keeps growing and its output file,
+     *             or "--sharded" followed by the number of shard processes, the input file path and the output file path.
      */
     public static void main(String[] args) {
-        BusOperation.process(args);
-        RemoveLine.removeLastLine(args);
-        FileOutput.writeToFile(args[1], "----------------", true, false);
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchProcessor.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--follow")) {
+            FollowProcessor.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--sharded")) {
+            ShardCoordinator.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--shard-worker")) {
+            try {
+                ShardWorker.main(args);
+            } catch (IOException e) {
+                System.err.println("ERROR: Shard worker failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        try {
+            run(args);
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Processes one input file into one output file using the booking system of the calling thread.
+     *
+     * @param args the input file path and the output file path.
+     * @throws UsageException if the arguments are wrong or the files cannot be accessed.
+     */
+    public static void run(String[] args) {
+        try {
+            current().setClock(fileRunClock());
+            current().useVoyageStore();
+            BusOperation.process(args);
+            RemoveLine.removeLastLine(args);
+            FileOutput.writeToFile(args[1], "----------------", true, false);
+        } finally {
+            if (args.length > 1) {
+                FileOutput.close(args[1]);
+                FileOutput.close(Departures.archivePath(args[1]));
+            }
+        }
+    }
+
+    /**
+     * Processes one input file into one output file with a fresh booking system, leaving the booking system of the calling
+     * thread untouched. Isolated runs share the JVM with other runs, so they archive their departed voyages next to their own
+     * output file even if {@value Departures#ARCHIVE_PROPERTY} names an archive.
+     *
+     * @param args the input file path and the output file path.
+     * @throws UsageException if the arguments are wrong or the files cannot be accessed.
+     */
+    public static void runIsolated(String[] args) {
+        BookingSystem system = new BookingSystem();
+        system.archiveNextToOutput = true;
+        runWith(system, () -> run(args));
+    }
+
+    /**
+     * Runs a task on the calling thread with the given booking system as its current booking system.
+     * This allows several threads to share one booking system, or one thread to switch between several.
+     *
+     * @param system the booking system the task operates on.
+     * @param task   the task to run.
+     */
+    public static void runWith(BookingSystem system, Runnable task) {
+        BookingSystem previous = CURRENT.get();
+        CURRENT.set(system);
+        try {
+            task.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    private final ConcurrentSkipListMap<Integer, Bus> allBuses = new ConcurrentSkipListMap<>();
+    private final ConcurrentLinkedQueue<Bus> retiredBuses = new ConcurrentLinkedQueue<>();
+    private final AtomicLong version = new AtomicLong();
+    private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+    private final VoyageAnalytics analytics = new VoyageAnalytics();
+    private final RevenueRollup revenue = new RevenueRollup();
+    private final SeatSubscriptions subscriptions = new SeatSubscriptions(this);
+    private final TreeSet<Bus> departures = new TreeSet<>((a, b) -> {
+        int order = Long.compare(a.getDeparture(), b.getDeparture());
+        return order != 0 ? order : Integer.compare(a.getId(), b.getId());
+    });
+    private volatile long nextDeparture = Bus.NO_DEPARTURE;
+    private final Set<Integer> departedIds = ConcurrentHashMap.newKeySet();
+    private final RequestCache requestCache = new RequestCache(100_000, 32L * 1024 * 1024);
+    private Clock clock = Clock.systemUTC();
+    private boolean archiveNextToOutput = false;
+    private final TimerWheel<SeatHold> holdTimers = new TimerWheel<>(HOLD_TICK_MILLIS, clock.millis());
+    private final VoyageStore store = new VoyageStore();
+    private final ArrayDeque<Bus> residentOrder = new ArrayDeque<>();
+    private int residentLimit = Integer.MAX_VALUE;
+
+    /**
+     * Returns the booking system of the calling thread.
+     *
+     * @return the booking system whose voyages the static methods operate on.
+     */
+    public static BookingSystem current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the clock of a run over an input file. Time stands still at the start of the run, or at the instant given by
+     * {@value #CLOCK_PROPERTY}, so the output of a file does not depend on how fast it is processed: no hold expires and no
+     * voyage departs while the file runs. Setting the property to "system" lets the clock follow the wall clock instead.
+     *
+     * @return the clock of a file run
+     * @throws UsageException if the property holds neither "system" nor an ISO-8601 instant
+     */
+    public static Clock fileRunClock() {
+        String start = System.getProperty(CLOCK_PROPERTY);
+        if (start == null) {
+            return Clock.fixed(Instant.now(), ZoneOffset.UTC);
+        }
+        if (start.equals("system")) {
+            return Clock.systemUTC();
+        }
+        try {
+            return Clock.fixed(Instant.parse(start), ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new UsageException("ERROR: " + start + " is not a valid time, " + CLOCK_PROPERTY + " must be \"system\" or an instant such as 2026-05-01T08:30:00Z! Program is going to terminate!");
+        }
+    }
+
+    /**
+     * Replaces the clock of this booking system, which decides when seat holds expire and voyages depart. The hold timers
+     * are moved to the time of the new clock, so a clock that starts in the past does not expire every hold at once.
+     *
+     * @param clock the new clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        holdTimers.rebase(clock.millis());
+    }
+
+    /**
+     * Returns the current time according to the clock of the booking system of the calling thread.
+     *
+     * @return the current time in milliseconds
+     */
+    public static long currentTimeMillis() {
+        return current().clock.millis();
+    }
+
+    /**
+     * Tells whether the booking system of the calling thread archives its departed voyages next to its output file, whatever
+     * archive {@value Departures#ARCHIVE_PROPERTY} names.
+     *
+     * @return true for the booking systems of isolated runs
+     */
+    public static boolean archivesNextToOutput() {
+        return current().archiveNextToOutput;
+    }
+
+    /**
+     * Returns the number of voyages a booking system that uses its {@link VoyageStore} keeps as {@code Bus} objects, given
+     * by {@value #RESIDENT_PROPERTY} or 1024 by default.
+     *
+     * @return the number of resident voyages
+     * @throws UsageException if the property is not a number of voyages
+     */
+    public static int residentVoyages() {
+        String limit = System.getProperty(RESIDENT_PROPERTY);
+        if (limit == null) {
+            return DEFAULT_RESIDENT_VOYAGES;
+        }
+        try {
+            int voyages = Integer.parseInt(limit);
+            if (voyages >= 0) {
+                return voyages;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new UsageException("ERROR: " + limit + " is not a valid number of voyages, " + RESIDENT_PROPERTY + " must be zero or a positive integer! Program is going to terminate!");
+    }
+
+    /**
+     * Lets this booking system move idle voyages into its {@link VoyageStore} once more than {@link #residentVoyages()}
+     * voyages are kept as {@code Bus} objects. Only booking systems whose commands all run on one thread may use the store.
+     *
+     * @throws UsageException if {@value #RESIDENT_PROPERTY} is not a number of voyages
+     */
+    public void useVoyageStore() {
+        residentLimit = residentVoyages();
+        residentOrder.addAll(allBuses.values());
+    }
+
+    /**
+     * Returns the voyage store of the booking system of the calling thread.
+     *
+     * @return the store that keeps the idle voyages
+     */
+    public static VoyageStore getVoyageStore() {
+        return current().store;
+    }
+
+    /**
+     * Moves the voyages that have been idle the longest into the store of the booking system of the calling thread, until
+     * no more than {@value #RESIDENT_PROPERTY} voyages are left as {@code Bus} objects. Voyages with holds, a waitlist or a
+     * departure time stay where they are. Nothing is moved while a report snapshot is open. Called between commands.
+     */
+    static void storeIdleVoyages() {
+        BookingSystem system = current();
+        int excess = system.residentOrder.size() - system.residentLimit;
+        if (excess <= 0 || system.oldestReaderVersion() != Long.MAX_VALUE) {
+            return;
+        }
+        for (int attempts = Math.min(excess, 64) + 16; excess > 0 && attempts > 0 && !system.residentOrder.isEmpty(); attempts--) {
+            Bus bus = system.residentOrder.poll();
+            if (system.allBuses.get(bus.getId()) != bus) {
+                excess--;
+                continue;
+            }
+            if (!bus.isStorable() || !bus.tryBeginUpdate()) {
+                if (bus.getDeparture() == Bus.NO_DEPARTURE && !bus.isRetired()) {
+                    system.residentOrder.add(bus);
+                }
+                continue;
+            }
+            try {
+                system.store.put(bus);
+                bus.detach();
+                system.allBuses.remove(bus.getId(), bus);
+            } finally {
+                bus.endUpdate();
+            }
+            excess--;
+        }
+    }
+
+    /**
+     * Returns a voyage as a {@code Bus} of this booking system, moving it out of the store if it is kept there.
+     *
+     * @param id the ID of the voyage
+     * @return the bus, or null if there is no voyage with the given ID
+     */
+    private Bus lookup(int id) {
+        Bus bus = allBuses.get(id);
+        if (bus == null) {
+            bus = store.take(id);
+            if (bus != null) {
+                bus.adopt(this);
+                allBuses.put(id, bus);
+                residentOrder.add(bus);
+            }
+        }
+        return bus;
+    }
+
+    public static TimerWheel<SeatHold> getHoldTimers() {
+        return current().holdTimers;
     }
-    private static List<Bus> allBuses = new ArrayList<>();
 
     public static void addBus(Bus bus) {
-        allBuses.add(bus);
+        BookingSystem system = current();
+        system.lookup(bus.getId());
+        Bus replaced = system.allBuses.put(bus.getId(), bus);
+        if (replaced != null) {
+            system.retiredBuses.add(replaced);
+        }
+        bus.attach(system);
+        if (bus.getDeparture() != Bus.NO_DEPARTURE) {
+            synchronized (system.departures) {
+                system.departures.add(bus);
+                system.updateNextDeparture();
+            }
+        } else if (system.residentLimit != Integer.MAX_VALUE) {
+            system.residentOrder.add(bus);
+        }
     }
 
+    /**
+     * Returns the voyages of the booking system of the calling thread, ordered by ID.
+     *
+     * @return a new list of the buses that have not been cancelled, including those moved out of the store for it
+     */
     public static List<Bus> getAllBuses() {
-        return allBuses;
+        BookingSystem system = current();
+        for (int id : system.store.storedIds()) {
+            system.lookup(id);
+        }
+        List<Bus> buses = new ArrayList<>();
+        for (Bus bus : system.allBuses.values()) {
+            if (!bus.isRetired()) {
+                buses.add(bus);
+            }
+        }
+        return buses;
     }
 
     public static Bus getBusById(int id) {
-        for (Bus bus : allBuses) {
-            if (bus.getId() == id) {
-                return bus;
+        Bus bus = current().lookup(id);
+        return bus == null || bus.isRetired() ? null : bus;
+    }
+
+    /**
+     * Removes a voyage. Reports that are already open keep seeing it; it is dropped for good once they are closed.
+     *
+     * @param id the ID of the voyage to remove
+     */
+    public static void removeBus(int id) {
+        BookingSystem system = current();
+        Bus bus = system.lookup(id);
+        system.store.remove(id);
+        if (bus != null && !bus.isRetired()) {
+            bus.retire();
+            system.retiredBuses.add(bus);
+            synchronized (system.departures) {
+                system.departures.remove(bus);
+                system.updateNextDeparture();
             }
+            system.purgeRetiredBuses();
         }
-        return null;
     }
 
-    public static void removeBus(int id) {
-        allBuses.removeIf(bus -> bus.getId() == id);
+    /**
+     * Removes a voyage that has departed. Unlike a cancelled voyage, its ID stays taken.
+     *
+     * @param id the ID of the voyage that departed
+     */
+    static void sealBus(int id) {
+        current().departedIds.add(id);
+        removeBus(id);
+    }
+
+    /**
+     * Tells whether a voyage has departed and been sealed.
+     *
+     * @param id the ID of the voyage
+     * @return true if the voyage with the given ID has departed
+     */
+    public static boolean hasDeparted(int id) {
+        return current().departedIds.contains(id);
+    }
+
+    /**
+     * Caches the earliest departure time, so that commands can check for departed voyages without taking a lock.
+     */
+    private void updateNextDeparture() {
+        nextDeparture = departures.isEmpty() ? Bus.NO_DEPARTURE : departures.first().getDeparture();
+    }
+
+    /**
+     * Returns the message for a command that names a voyage which is not in the booking system.
+     *
+     * @param id the ID given in the command
+     * @return the error telling whether the voyage has departed or never existed
+     */
+    public static String missingVoyageError(int id) {
+        return hasDeparted(id) ? "ERROR: Voyage " + id + " has already departed!" : "ERROR: There is no voyage with ID of " + id + "!";
+    }
+
+    /**
+     * Removes the voyages whose departure time is not later than the given time from the departure index.
+     *
+     * @param now the current time in milliseconds
+     * @return the voyages that have departed, ordered by departure time
+     */
+    static List<Bus> takeDeparted(long now) {
+        BookingSystem system = current();
+        if (system.nextDeparture > now) {
+            return Collections.emptyList();
+        }
+        List<Bus> departed = new ArrayList<>();
+        synchronized (system.departures) {
+            while (!system.departures.isEmpty() && system.departures.first().getDeparture() <= now) {
+                departed.add(system.departures.pollFirst());
+            }
+            system.updateNextDeparture();
+        }
+        return departed;
+    }
+
+    /**
+     * Opens a consistent snapshot of all voyages of the booking system of the calling thread. The snapshot must be closed,
+     * since the older versions of the voyages are kept for as long as it is open.
+     *
+     * @return a snapshot of the current version of every voyage
+     */
+    public static Snapshot openSnapshot() {
+        return current().open();
+    }
+
+    /**
+     * Returns the revenue and occupancy rankings of the voyages of the booking system of the calling thread.
+     *
+     * @return the analytics that are kept up to date with every published voyage version
+     */
+    public static VoyageAnalytics getAnalytics() {
+        return current().analytics;
+    }
+
+    /**
+     * Returns the responses of the recent commands with a request ID of the booking system of the calling thread.
+     *
+     * @return the request cache used to answer retried commands
+     */
+    public static RequestCache getRequestCache() {
+        return current().requestCache;
+    }
+
+    /**
+     * Returns the revenue of the booking system of the calling thread summed up by bus type and by route.
+     *
+     * @return the rollup that is kept up to date with every change of the revenue of a voyage
+     */
+    public static RevenueRollup getRevenueRollup() {
+        return current().revenue;
+    }
+
+    /**
+     * Returns the seat map subscriptions of the booking system of the calling thread.
+     *
+     * @return the subscriptions that are notified of the seat changes of watched voyages
+     */
+    public static SeatSubscriptions getSeatSubscriptions() {
+        return current().subscriptions;
+    }
+
+    /**
+     * Finds a voyage of this booking system, for callers that do not run on a thread of the booking system. A voyage kept in
+     * the store is returned as a view that stays there, which callers may read but not change.
+     *
+     * @param id the ID of the voyage
+     * @return the voyage, or null if there is no voyage with the given ID
+     */
+    Bus findBus(int id) {
+        Bus bus = allBuses.get(id);
+        if (bus == null) {
+            bus = store.view(id);
+        }
+        return bus == null || bus.isRetired() ? null : bus;
+    }
+
+    /**
+     * Called by a voyage when its revenue changes.
+     *
+     * @param bus    the voyage whose revenue changed
+     * @param kind   {@link RevenueRollup#SALES}, {@link RevenueRollup#REFUNDS} or {@link RevenueRollup#CANCELLATIONS}
+     * @param amount the amount sold, refunded or reversed
+     */
+    void revenueChanged(Bus bus, int kind, double amount) {
+        revenue.record(bus, kind, amount);
     }
 
+    /**
+     * Called by a voyage after it has published a new version.
+     *
+     * @param bus the voyage that changed
+     */
+    void voyageChanged(Bus bus) {
+        subscriptions.voyageChanged(bus);
+        if (bus.isRetired()) {
+            analytics.remove(bus.getId());
+        } else {
+            analytics.update(bus);
+        }
+    }
 
+    long nextVersion() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * Returns the version of the oldest open snapshot, which is the oldest version a voyage still has to keep.
+     *
+     * @return the oldest pinned version, or {@code Long.MAX_VALUE} if no snapshot is open
+     */
+    long oldestReaderVersion() {
+        synchronized (openSnapshots) {
+            return openSnapshots.isEmpty() ? Long.MAX_VALUE : openSnapshots.firstKey();
+        }
+    }
+
+    private Snapshot open() {
+        synchronized (openSnapshots) {
+            long pinned = version.get();
+            openSnapshots.merge(pinned, 1, Integer::sum);
+            return new Snapshot(pinned);
+        }
+    }
+
+    private void close(long pinned) {
+        synchronized (openSnapshots) {
+            openSnapshots.computeIfPresent(pinned, (key, count) -> count == 1 ? null : count - 1);
+        }
+        purgeRetiredBuses();
+    }
+
+    /**
+     * Drops the cancelled voyages from the index once no open snapshot can still see them.
+     */
+    private void purgeRetiredBuses() {
+        if (oldestReaderVersion() != Long.MAX_VALUE) {
+            return;
+        }
+        Bus bus;
+        while ((bus = retiredBuses.poll()) != null) {
+            allBuses.remove(bus.getId(), bus);
+        }
+    }
+
+    /**
+     * A consistent view of every voyage at one version of the booking system, iterated in ID order.
+     * Voyages added after the snapshot was opened are not part of it, and voyages cancelled afterwards still are.
+     */
+    public final class Snapshot implements AutoCloseable, Iterable<VoyageSnapshot> {
+        private final long pinned;
+        private boolean closed = false;
+
+        private Snapshot(long pinned) {
+            this.pinned = pinned;
+        }
+
+        public long getVersion() {
+            return pinned;
+        }
+
+        @Override
+        public Iterator<VoyageSnapshot> iterator() {
+            Iterable<Bus> buses = allBuses.values();
+            if (!retiredBuses.isEmpty()) {
+                TreeMap<Integer, List<Bus>> merged = new TreeMap<>();
+                for (Bus bus : allBuses.values()) {
+                    merged.computeIfAbsent(bus.getId(), key -> new ArrayList<>()).add(bus);
+                }
+                for (Bus bus : retiredBuses) {
+                    List<Bus> sameId = merged.computeIfAbsent(bus.getId(), key -> new ArrayList<>());
+                    if (!sameId.contains(bus)) {
+                        sameId.add(bus);
+                    }
+                }
+                List<Bus> ordered = new ArrayList<>();
+                merged.values().forEach(ordered::addAll);
+                buses = ordered;
+            }
+            Iterator<Bus> source = buses.iterator();
+            int[] storedIds = store.storedIds();
+            return new Iterator<VoyageSnapshot>() {
+                private Bus nextBus = source.hasNext() ? source.next() : null;
+                private int nextStored = 0;
+                private VoyageSnapshot next = advance();
+
+                private VoyageSnapshot advance() {
+                    while (nextBus != null || nextStored < storedIds.length) {
+                        VoyageSnapshot snapshot;
+                        if (nextBus != null && (nextStored == storedIds.length || nextBus.getId() <= storedIds[nextStored])) {
+                            snapshot = nextBus.snapshotAt(pinned);
+                            nextBus = source.hasNext() ? source.next() : null;
+                        } else {
+                            snapshot = storedSnapshot(storedIds[nextStored++]);
+                        }
+                        if (snapshot != null) {
+                            return snapshot;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public VoyageSnapshot next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    VoyageSnapshot current = next;
+                    next = advance();
+                    return current;
+                }
+            };
+        }
+
+        /**
+         * Reads a voyage that was in the store when the iteration started. Voyages are not moved into the store while a
+         * snapshot is open, so one that has left it since is found among the buses.
+         */
+        private VoyageSnapshot storedSnapshot(int id) {
+            Bus bus = store.view(id);
+            if (bus == null) {
+                bus = allBuses.get(id);
+            }
+            return bus == null ? null : bus.snapshotAt(pinned);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                BookingSystem.this.close(pinned);
+            }
+        }
+    }
 }
@@ -1,7 +1,21 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * The abstract class {@code Bus} serves as a blueprint for various types of buses in a booking system.
  * It contains common properties and methods that all bus types inherit, such as bus ID, route information, and seating.
  * Specific types of buses will extend this class to implement specific features and behaviors.
+ *
+ * <p>Seat state is copy-on-write: arrays that have been published in a {@code VoyageSnapshot} are never modified again, so
+ * reports can render a published snapshot while sales and refunds continue. Mutations made between {@link #beginUpdate()}
+ * and {@link #endUpdate()} are published together as a single new version.
+ *
+ * <p>The seating follows the {@code SeatLayout} of the bus type. The class, fare and refunds of every seat come from tables
+ * that are computed once per voyage, so sales and refunds never have to work out which class a seat belongs to.
+ *
+ * <p>The seat array is only allocated when the first seat is sold or held; until then every bus shares one empty array that
+ * stands for "all seats are free", so voyages that are scheduled long before their sales start stay small.
  */
 public abstract class Bus {
     private int id;
@@ -9,15 +23,79 @@ public abstract class Bus {
     private String to;
     private int rows;
     private double price;
-    protected boolean[] seats;
+    /**
+     * The departure time of a voyage that has none.
+     */
+    static final long NO_DEPARTURE = Long.MAX_VALUE;
+
+    private long departure = NO_DEPARTURE;
+    private final SeatLayout layout;
+    private final byte[] seatClasses;
+    private final double refundCut;
+    private final double premiumFee;
+    private final double[] fares;
+    private final double[] refunds;
+    private final double[] cancellationRefunds;
+    /**
+     * The seat array of every bus that has never had a seat sold.
+     */
+    static final boolean[] ALL_FREE = new boolean[0];
+
+    private boolean[] seats = ALL_FREE;
+    private int capacity;
     private double revenue = 0;
+    private int soldRegularSeats = 0;
+    private int soldPremiumSeats = 0;
+    private SeatHold[] holds;
+    private int heldSeats = 0;
+    private int holdsIssued = 0;
+    private Waitlist waitlist;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private boolean seatsShared = false;
+    private boolean holdsShared = false;
+    private volatile boolean retired = false;
+    private BookingSystem owner;
+    private volatile VoyageSnapshot published;
+    private byte[] reportHeader;
+    private String route;
+    private volatile SaleCombiner saleCombiner;
 
     public double getRevenue() {
         return revenue;
     }
 
     protected void addRevenue(double amount) {
-        this.revenue += amount;
+        changeRevenue(amount, RevenueRollup.SALES);
+    }
+
+    /**
+     * Deducts the refund of tickets from the revenue.
+     *
+     * @param amount the refunded amount
+     */
+    protected void deductRefund(double amount) {
+        changeRevenue(-amount, RevenueRollup.REFUNDS);
+    }
+
+    /**
+     * Deducts the reversal of the sold tickets of a cancelled voyage from the revenue.
+     *
+     * @param amount the reversed amount
+     */
+    protected void deductCancellation(double amount) {
+        changeRevenue(-amount, RevenueRollup.CANCELLATIONS);
+    }
+
+    private void changeRevenue(double delta, int kind) {
+        beginUpdate();
+        try {
+            this.revenue += delta;
+            if (owner != null) {
+                owner.revenueChanged(this, kind, Math.abs(delta));
+            }
+        } finally {
+            endUpdate();
+        }
     }
 
     public String getFrom() {
@@ -28,6 +106,20 @@ public abstract class Bus {
         return to;
     }
 
+    /**
+     * Returns the route of the voyage, which groups voyages in revenue reports.
+     *
+     * @return the departure and arrival city as "From-To"
+     */
+    public String getRoute() {
+        String route = this.route;
+        if (route == null) {
+            route = from + "-" + to;
+            this.route = route;
+        }
+        return route;
+    }
+
     public int getRows() {
         return rows;
     }
@@ -36,6 +128,39 @@ public abstract class Bus {
         return price;
     }
 
+    /**
+     * Returns the departure time of the voyage.
+     *
+     * @return the departure time in milliseconds, or {@link #NO_DEPARTURE}
+     */
+    public long getDeparture() {
+        return departure;
+    }
+
+    /**
+     * Sets the departure time of the voyage. It must be set before the bus is added to a booking system.
+     *
+     * @param departure the departure time in milliseconds
+     */
+    void setDeparture(long departure) {
+        this.departure = departure;
+    }
+
+    /**
+     * Returns the first two lines every report prints for this voyage, "Voyage ID" and "From-To", encoded in UTF-8.
+     * The lines never change, so they are encoded only once.
+     *
+     * @return the encoded header lines, each followed by a newline
+     */
+    public byte[] getReportHeader() {
+        byte[] header = reportHeader;
+        if (header == null) {
+            header = ("Voyage " + id + "\n" + from + "-" + to + "\n").getBytes(StandardCharsets.UTF_8);
+            reportHeader = header;
+        }
+        return header;
+    }
+
     public int getId() {
         return id;
     }
@@ -47,26 +172,584 @@ public abstract class Bus {
      * @param from  the starting point of the bus route
      * @param to    the destination point of the bus route
      * @param rows  the number of rows of seats in the bus
-     * @param price the base price of a ticket
+     * @param price      the base price of a ticket
+     * @param layout     the seating of the bus type
+     * @param refundCut  the percentage deduction applied when refunding a ticket, ignored if tickets are not refundable
+     * @param premiumFee the percentage added to the price of premium seats, ignored if there are no premium seats
      */
 
-    public Bus(int id, String from, String to, int rows, double price) {
+    public Bus(int id, String from, String to, int rows, double price, SeatLayout layout, double refundCut, double premiumFee) {
         this.id = id;
         this.from = from;
         this.to = to;
         this.rows = rows;
         this.price = price;
+        this.layout = layout;
+        this.refundCut = refundCut;
+        this.premiumFee = premiumFee;
+        this.capacity = rows * layout.getSeatsPerRow();
+        this.seatClasses = layout.seatClasses(rows);
+
+        // Classes the layout does not have take the values of the regular class, so checks over all classes are unaffected.
+        double premiumPrice = layout.hasPremiumSeats() ? (premiumFee + 100) * price / 100 : price;
+        fares = new double[] {price, premiumPrice};
+        double regularRefund = price - (price * refundCut / 100);
+        refunds = layout.isRefundable()
+                ? new double[] {regularRefund, premiumPrice - (premiumPrice * refundCut / 100)}
+                : new double[] {0, 0};
+        cancellationRefunds = layout.isRefundable()
+                ? new double[] {price, layout.hasPremiumSeats() ? (premiumFee + 100) / 100.0 * price : price}
+                : new double[] {0, 0};
+    }
+    /**
+     * Renders the seat arrangement of a snapshot of this bus.
+     *
+     * @param snapshot a snapshot of this bus
+     * @return a string representing the seating arrangement of the snapshot
+     */
+    public String visualizeSeats(VoyageSnapshot snapshot) {
+        return layout.render(snapshot);
     }
-    public abstract String visualizeSeats();
 
+    /**
+     * Renders the current seat arrangement of the bus.
+     *
+     * @return a string representing the current seating arrangement
+     */
+    public String visualizeSeats() {
+        updateLock.lock();
+        try {
+            return visualizeSeats(new VoyageSnapshot(this, seats, capacity, holds, revenue, 0, false, null));
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a group of mutations that is published as one version. Calls may be nested; other writers of this bus wait
+     * until the outermost group ends, whereas readers of published snapshots never wait.
+     */
+    public void beginUpdate() {
+        updateLock.lock();
+    }
+
+    /**
+     * Starts a group of mutations like {@link #beginUpdate()} if no other thread is changing the bus.
+     *
+     * @return true if the group has been started and has to be ended with {@link #endUpdate()}
+     */
+    public boolean tryBeginUpdate() {
+        return updateLock.tryLock();
+    }
+
+    /**
+     * Ends a group of mutations started with {@link #beginUpdate()} and publishes the new state when the outermost group ends.
+     */
+    public void endUpdate() {
+        boolean outermost = updateLock.getHoldCount() == 1;
+        try {
+            if (outermost) {
+                publish();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+        SaleCombiner combiner = saleCombiner;
+        if (outermost && combiner != null) {
+            combiner.handOff();
+        }
+    }
+
+    /**
+     * Makes the seat array writable, copying it first if it has been published.
+     */
+    private void ensureSeatsWritable() {
+        if (seats == ALL_FREE) {
+            seats = new boolean[capacity];
+            seatsShared = false;
+        } else if (seatsShared) {
+            seats = seats.clone();
+            seatsShared = false;
+        }
+    }
+
+    private void ensureHoldsWritable() {
+        if (holds == null) {
+            holds = new SeatHold[capacity];
+        } else if (holdsShared) {
+            holds = holds.clone();
+        }
+        holdsShared = false;
+    }
+
+    /**
+     * Publishes the current state as a new version. Older versions are only kept while a report that may need them is open.
+     */
+    private void publish() {
+        if (owner == null) {
+            return;
+        }
+        long version = owner.nextVersion();
+        long oldest = owner.oldestReaderVersion();
+        VoyageSnapshot previous = oldest >= version ? null : published;
+        for (VoyageSnapshot kept = previous; kept != null; kept = kept.getPrevious()) {
+            if (kept.getVersion() <= oldest) {
+                kept.dropPrevious();
+                break;
+            }
+        }
+        published = new VoyageSnapshot(this, seats, capacity, holds, revenue, version, retired, previous);
+        seatsShared = true;
+        holdsShared = true;
+        owner.voyageChanged(this);
+    }
+
+    /**
+     * Connects the bus to the booking system that owns it and publishes its first version.
+     *
+     * @param owner the booking system the bus is added to
+     */
+    void attach(BookingSystem owner) {
+        beginUpdate();
+        try {
+            this.owner = owner;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Connects a view created by a {@link VoyageStore} to the booking system it is moved back into, without publishing a
+     * version since the voyage has not changed.
+     *
+     * @param owner the booking system the view belongs to
+     */
+    void adopt(BookingSystem owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Disconnects the bus from its booking system after its state has been moved into a {@link VoyageStore}, so that stale
+     * references to it no longer publish versions.
+     */
+    void detach() {
+        owner = null;
+    }
+
+    /**
+     * Tells whether the state of the voyage consists only of what a {@link VoyageStore} keeps: it has no departure, holds,
+     * waitlist or sale combiner, and no thread is changing it.
+     *
+     * @return true if the voyage can be moved into a store
+     */
+    boolean isStorable() {
+        return !retired && published != null && departure == NO_DEPARTURE && heldSeats == 0 && waitlist == null
+                && saleCombiner == null && !updateLock.isLocked();
+    }
+
+    /**
+     * Sets the state of a view created by a {@link VoyageStore} and publishes it as the version it had when it was stored.
+     *
+     * @param seats       the sold seats, or {@link #ALL_FREE}
+     * @param revenue     the revenue of the voyage
+     * @param holdsIssued the number of holds issued so far
+     * @param version     the version of the stored state
+     */
+    void restore(boolean[] seats, double revenue, int holdsIssued, long version) {
+        this.seats = seats;
+        this.revenue = revenue;
+        this.holdsIssued = holdsIssued;
+        for (int index = 0; index < seats.length; index++) {
+            if (seats[index]) {
+                if (seatClasses[index] == SeatLayout.PREMIUM_SEAT) {
+                    soldPremiumSeats++;
+                } else {
+                    soldRegularSeats++;
+                }
+            }
+        }
+        published = new VoyageSnapshot(this, seats, capacity, null, revenue, version, false, null);
+        seatsShared = true;
+    }
+
+    int getHoldsIssued() {
+        return holdsIssued;
+    }
+
+    long getVersion() {
+        VoyageSnapshot snapshot = published;
+        return snapshot == null ? 0 : snapshot.getVersion();
+    }
+
+    /**
+     * Publishes a version in which the voyage no longer exists, for reports that start after its removal.
+     */
+    void retire() {
+        beginUpdate();
+        try {
+            retired = true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Returns the latest published version of the bus, or its current state if it is not part of a booking system.
+     *
+     * @return a snapshot of the bus
+     */
+    public VoyageSnapshot snapshot() {
+        VoyageSnapshot snapshot = published;
+        return snapshot != null ? snapshot : new VoyageSnapshot(this, seats.clone(), capacity, holds == null ? null : holds.clone(), revenue, 0, retired, null);
+    }
+
+    /**
+     * Returns the version of the bus that was current at the given version of its booking system.
+     *
+     * @param version a version obtained from an open report snapshot
+     * @return the snapshot, or null if the voyage did not exist at that version
+     */
+    public VoyageSnapshot snapshotAt(long version) {
+        VoyageSnapshot snapshot = published;
+        while (snapshot != null && snapshot.getVersion() > version) {
+            snapshot = snapshot.getPrevious();
+        }
+        return snapshot == null || snapshot.isRetired() ? null : snapshot;
+    }
+
+    /**
+     * Attempts to sell a seat and adds its fare to the revenue.
+     *
+     * @param seatNumber the seat number to be sold
+     * @throws Exception if the seat number is invalid or the seat is already sold
+     */
     public void sellSeat(int seatNumber) throws Exception {
+        if (layout == SeatLayout.PREMIUM) {
+            // Premium voyages have always added the fare before checking the seat, even if the sale then fails.
+            addRevenue(fares[(seatNumber - 1) % 3 == 0 ? SeatLayout.PREMIUM_SEAT : SeatLayout.REGULAR_SEAT]);
+        }
+        if (seatNumber <= 0) {
+            throw new IllegalArgumentException("ERROR: " + seatNumber + " is not a positive integer, seat number must be a positive integer!");
+        }
+        int index = seatNumber - 1;
+        if (index >= capacity) {
+            throw new Exception("ERROR: There is no such a seat!");
+        }
+        if (isSold(index)) {
+            throw new Exception("ERROR: This seat is already sold.");
+        }
+        markSold(index);
+        if (layout != SeatLayout.PREMIUM) {
+            addRevenue(fares[seatClasses[index]]);
+        }
+    }
+    /**
+     * Sells a block of consecutive empty seats at once and adds their fares to the revenue. The fares are summed per seat class
+     * unless an amount has a fraction, in which case they are added seat by seat to keep the rounding of the revenue unchanged.
+     *
+     * @param range the seats to sell, none of which may be sold or held
+     * @return the total fare of the seats
+     */
+    public double sellRange(SeatRange range) {
+        int first = range.getFirst();
+        int end = range.getEnd();
+        beginUpdate();
+        try {
+            ensureSeatsWritable();
+            Arrays.fill(seats, first, end, true);
+            int premiumSeats = layout.countPremiumSeats(first, end);
+            soldPremiumSeats += premiumSeats;
+            soldRegularSeats += end - first - premiumSeats;
+            double regularFare = fares[SeatLayout.REGULAR_SEAT];
+            double premiumFare = fares[SeatLayout.PREMIUM_SEAT];
+            if (isExactAmount(regularFare) && isExactAmount(premiumFare) && isExactAmount(revenue)) {
+                double total = premiumSeats * premiumFare + (end - first - premiumSeats) * regularFare;
+                addRevenue(total);
+                return total;
+            }
+            double total = 0;
+            for (int index = first; index < end; index++) {
+                double fare = fares[seatClasses[index]];
+                addRevenue(fare);
+                total += fare;
+            }
+            return total;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Marks a block of consecutive sold seats as empty at once. The revenue is not changed.
+     *
+     * @param range the seats to refund, all of which must be sold
+     * @return the number of premium seats among them
+     */
+    public int refundRange(SeatRange range) {
+        int first = range.getFirst();
+        int end = range.getEnd();
+        beginUpdate();
+        try {
+            ensureSeatsWritable();
+            Arrays.fill(seats, first, end, false);
+            int premiumSeats = layout.countPremiumSeats(first, end);
+            soldPremiumSeats -= premiumSeats;
+            soldRegularSeats -= end - first - premiumSeats;
+            if (waitlist != null) {
+                for (int index = first; index < end; index++) {
+                    waitlist.seatFreed(index);
+                }
+            }
+            return premiumSeats;
+        } finally {
+            endUpdate();
+        }
     }
+
     public void refundSeat(int seatNumber) {
         int index = seatNumber - 1;
-        seats[index] = false;
+        beginUpdate();
+        try {
+            if (isSold(index)) {
+                if (isPremiumSeat(index)) {
+                    soldPremiumSeats--;
+                } else {
+                    soldRegularSeats--;
+                }
+                ensureSeatsWritable();
+                seats[index] = false;
+                if (waitlist != null) {
+                    waitlist.seatFreed(index);
+                }
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+    /**
+     * Marks a seat as sold and counts it in the occupancy counter of its seat class.
+     *
+     * @param index the zero based index of the seat, which must be empty
+     */
+    protected void markSold(int index) {
+        beginUpdate();
+        try {
+            ensureSeatsWritable();
+            seats[index] = true;
+            if (isPremiumSeat(index)) {
+                soldPremiumSeats++;
+            } else {
+                soldRegularSeats++;
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+    /**
+     * Tells whether a seat belongs to the premium class.
+     *
+     * @param index the zero based index of the seat
+     * @return true if the seat is a premium seat
+     */
+    public boolean isPremiumSeat(int index) {
+        return seatClasses[index] == SeatLayout.PREMIUM_SEAT;
+    }
+    /**
+     * Returns the class of a seat.
+     *
+     * @param index the zero based index of the seat
+     * @return {@link SeatLayout#REGULAR_SEAT} or {@link SeatLayout#PREMIUM_SEAT}
+     */
+    public byte getSeatClass(int index) {
+        return seatClasses[index];
+    }
+    /**
+     * Returns the price paid for a seat of the given class, including the premium fee for premium seats.
+     *
+     * @param seatClass {@link SeatLayout#REGULAR_SEAT} or {@link SeatLayout#PREMIUM_SEAT}
+     * @return the fare of the class
+     */
+    public double getFare(byte seatClass) {
+        return fares[seatClass];
+    }
+    /**
+     * Returns the amount paid back when a ticket of the given class is refunded, which is 0 if tickets are not refundable.
+     *
+     * @param seatClass {@link SeatLayout#REGULAR_SEAT} or {@link SeatLayout#PREMIUM_SEAT}
+     * @return the fare of the class less the refund cut
+     */
+    public double getRefund(byte seatClass) {
+        return refunds[seatClass];
+    }
+    /**
+     * Returns the amount paid back for a ticket of the given class when the voyage is cancelled, which is 0 if tickets are
+     * not refundable.
+     *
+     * @param seatClass {@link SeatLayout#REGULAR_SEAT} or {@link SeatLayout#PREMIUM_SEAT}
+     * @return the full fare of the class
+     */
+    public double getCancellationRefund(byte seatClass) {
+        return cancellationRefunds[seatClass];
     }
-    public boolean[] getSeats() {
-        return seats;
+    public SeatLayout getLayout() {
+        return layout;
+    }
+    public double getRefundCut() {
+        return refundCut;
+    }
+    public double getPremiumFee() {
+        return premiumFee;
+    }
+    /**
+     * Tells whether an amount is a whole number small enough for every sum of such amounts to be exact in double arithmetic.
+     * Totals of exact amounts can be computed in closed form without changing a single bit of the result.
+     *
+     * @param amount the amount to check
+     * @return true if the amount is an exactly representable whole number
+     */
+    static boolean isExactAmount(double amount) {
+        return amount == Math.rint(amount) && Math.abs(amount) < 1e12;
+    }
+    /**
+     * Tells whether a seat is held by a pending checkout. A held seat is neither sold nor available for sale.
+     *
+     * @param index the zero based index of the seat
+     * @return true if the seat is held
+     */
+    public boolean isHeld(int index) {
+        return holds != null && holds[index] != null;
+    }
+    /**
+     * Returns the hold a seat is held by.
+     *
+     * @param index the zero based index of the seat
+     * @return the hold, or null if the seat is not held
+     */
+    SeatHold getHold(int index) {
+        return holds == null ? null : holds[index];
+    }
+    /**
+     * Issues the ID of a new hold of this voyage. The caller must hold the update lock.
+     *
+     * @return the next hold ID, starting from 1
+     */
+    int nextHoldId() {
+        return ++holdsIssued;
+    }
+    /**
+     * Marks an empty seat as held by the given hold.
+     *
+     * @param index the zero based index of the seat
+     * @param hold  the hold that owns the seat
+     */
+    void hold(int index, SeatHold hold) {
+        beginUpdate();
+        try {
+            ensureHoldsWritable();
+            if (holds[index] == null) {
+                heldSeats++;
+            }
+            holds[index] = hold;
+        } finally {
+            endUpdate();
+        }
+    }
+    /**
+     * Releases a seat if it is still held by the given hold, or by any hold if {@code hold} is null.
+     *
+     * @param index the zero based index of the seat
+     * @param hold  the hold that owns the seat, or null
+     * @return true if the seat was released
+     */
+    boolean release(int index, SeatHold hold) {
+        beginUpdate();
+        try {
+            if (!isHeld(index) || (hold != null && holds[index] != hold)) {
+                return false;
+            }
+            ensureHoldsWritable();
+            holds[index] = null;
+            heldSeats--;
+            if (waitlist != null) {
+                waitlist.seatFreed(index);
+            }
+            return true;
+        } finally {
+            endUpdate();
+        }
+    }
+    /**
+     * Returns the number of seats that are neither sold nor held.
+     *
+     * @return the number of empty seats
+     */
+    public int getEmptySeats() {
+        return capacity - soldRegularSeats - soldPremiumSeats - heldSeats;
+    }
+    /**
+     * Returns the number of seats that are empty or may still become empty. Sold seats only become empty again if the
+     * tickets of the voyage are refundable; held seats always do when their hold expires.
+     *
+     * @return the number of seats a waiting request can still get
+     */
+    public int getFreeableSeats() {
+        return layout.isRefundable() ? capacity : capacity - soldRegularSeats - soldPremiumSeats;
+    }
+    /**
+     * Returns the waitlist of the voyage, creating it on first use.
+     *
+     * @return the waitlist of the voyage
+     */
+    public Waitlist getWaitlist() {
+        if (waitlist == null) {
+            waitlist = new Waitlist();
+        }
+        return waitlist;
+    }
+    public boolean hasWaitlist() {
+        return waitlist != null && !waitlist.isEmpty();
+    }
+    /**
+     * Returns the combiner that batches contended sales of the voyage.
+     *
+     * @param create true to create the combiner if the voyage has none yet
+     * @return the combiner, or null if it has not been created
+     */
+    SaleCombiner getSaleCombiner(boolean create) {
+        SaleCombiner combiner = saleCombiner;
+        if (combiner == null && create) {
+            synchronized (this) {
+                combiner = saleCombiner;
+                if (combiner == null) {
+                    combiner = new SaleCombiner(this);
+                    saleCombiner = combiner;
+                }
+            }
+        }
+        return combiner;
+    }
+    public int getSoldRegularSeats() {
+        return soldRegularSeats;
+    }
+    public int getSoldPremiumSeats() {
+        return soldPremiumSeats;
+    }
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Tells whether a seat is sold.
+     *
+     * @param index the zero based index of the seat
+     * @return true if the seat is sold
+     */
+    public boolean isSold(int index) {
+        return index < seats.length && seats[index];
     }
 
 }
\ No newline at end of file
@@ -1,25 +1,52 @@
 import java.io.File;
+import java.util.Arrays;
+import jdk.jfr.FlightRecorder;
 /**
  * The {@code BusOperation} class is responsible for the operational management of bus voyages in the booking system.
  * It processes input commands from a file and executes them accordingly, handling bus initialization, ticket sales, refunds, cancellations, and generating reports.
  */
 public class BusOperation {
+    /**
+     * Marks the optional last field of a mutating command that holds its request ID, as in "request=abc-1".
+     */
+    static final String REQUEST_PREFIX = "request=";
+
     /**
      * Processes the entire list of commands related to bus operations from the provided command line arguments.
      * This method validates the command line arguments, checks file accessibility, and reads the input file to process each command.
      *
      * @param args the command line arguments, expected to include the path to the input file and the path to the output file.
+     * @throws UsageException if the arguments are wrong or the files cannot be accessed.
      */
     public static void process(String[] args) {
+        checkFiles(args);
+        String[] data = FileInput.readFile(args[0], true, true);
+        boolean lastCommandIsZReport = false;
+        for (String line : data) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            lastCommandIsZReport = execute(line, args);
+        }
+        if (!lastCommandIsZReport) {
+            printFinalZReport(args);
+        }
+    }
+
+    /**
+     * Validates the command line arguments and makes sure that the input file can be read and the output file exists.
+     *
+     * @param args the command line arguments, expected to include the path to the input file and the path to the output file.
+     * @throws UsageException if the arguments are wrong or the files cannot be accessed.
+     */
+    public static void checkFiles(String[] args) {
         if (args.length != 2) {
-            System.err.println("ERROR: This program works exactly with two command line arguments, the first one is the path to the input file whereas the second one is the path to the output file. Sample usage can be as follows: \"java BookingSystem input.txt output.txt\". Program is going to terminate!");
-            System.exit(1);
+            throw new UsageException("ERROR: This program works exactly with two command line arguments, the first one is the path to the input file whereas the second one is the path to the output file. Sample usage can be as follows: \"java BookingSystem input.txt output.txt\". Program is going to terminate!");
         }
 
         File inputFile = new File(args[0]);
         if (!inputFile.exists() || !inputFile.canRead()) {
-            System.err.println("ERROR: This program cannot read from \"" + args[0] + "\", either this program does not have read permission to read that file or file does not exist. Program is going to terminate!");
-            System.exit(1);
+            throw new UsageException("ERROR: This program cannot read from \"" + args[0] + "\", either this program does not have read permission to read that file or file does not exist. Program is going to terminate!");
         }
 
         File outputFile = new File(args[1]);
@@ -27,161 +54,328 @@ public class BusOperation {
             try {
                 outputFile.createNewFile();
             } catch (Exception e) {
-                System.err.println("ERROR: This program cannot write to \"" + args[1] + "\", please check the permissions to write that directory. Program is going to terminate!");
-                System.exit(1);
+                throw new UsageException("ERROR: This program cannot write to \"" + args[1] + "\", please check the permissions to write that directory. Program is going to terminate!");
             }
         }
-        String[] data = FileInput.readFile(args[0], true, true);
-        boolean lastCommandIsZReport = false;
-        for (String line : data) {
-            if (line.trim().isEmpty()) {
-                continue;
+    }
+
+    /**
+     * Executes a single, non-empty command line and writes its results to the output file.
+     *
+     * @param line the command line, with its fields separated by tabs.
+     * @param args the command line arguments, where args[1] is the path to the output file.
+     * @return true if the command was a valid Z report, which makes the final Z report unnecessary.
+     */
+    public static boolean execute(String line, String[] args) {
+        String[] parts = line.split("\\t");
+        CommandEvent event = FlightRecorder.isInitialized() ? CommandEvent.start(parts) : null;
+        boolean completed = false;
+        try {
+            HoldSeat.expireHolds(args);
+            Departures.sealDeparted(args);
+            BookingSystem.storeIdleVoyages();
+            String last = parts[parts.length - 1];
+            boolean zReport;
+            if (parts.length > 1 && last.startsWith(REQUEST_PREFIX) && isMutating(parts[0])) {
+                parts = Arrays.copyOf(parts, parts.length - 1);
+                zReport = executeOnce(last.substring(REQUEST_PREFIX.length()), String.join("\t", parts), parts, args);
+            } else {
+                zReport = dispatch(line, parts, args);
+            }
+            completed = true;
+            return zReport;
+        } finally {
+            if (event != null) {
+                CommandEvent.finish(event, completed);
             }
+        }
+    }
 
-            String[] parts = line.split("\\t");
-
-            switch (parts[0]) {
-                case "INIT_VOYAGE":
-                    String busType = parts[1].toLowerCase();
-                    if (busType.equals("premium") || busType.equals("standard") || busType.equals("minibus")) {
-                        Print.printInitVoyageCommand(parts, args);
-                        int busId = Integer.parseInt(parts[2]);
-                        Bus existingBus = BookingSystem.getBusById(busId);
-                        if (existingBus != null) {
-                            String errorMessage = "ERROR: There is already a voyage with ID of " + busId + "!";
-                            FileOutput.writeToFile(args[1], errorMessage, true, true);
-                        } else {
-                            try {
-                                InitVoyage.busPlacer(line, args);
-                                Print.printInitVoyageInfo(parts, args);
-                            } catch (IllegalArgumentException e) {
-                                FileOutput.writeToFile(args[1], e.getMessage(), true, true);
-                            }
-                        }
-                    } else {
-                        Print.printInitVoyageCommand(parts, args);
-                        String errorMessage = "ERROR: Erroneous usage of \"INIT_VOYAGE\" command!";
+    /**
+     * Executes a command that carries a request ID. The first time the ID is seen the command is executed and its output is
+     * remembered; a retry with the same ID writes the remembered output again without executing anything.
+     *
+     * @param requestId the request ID given with the command
+     * @param line      the command line without the request ID
+     * @param parts     the fields of the command without the request ID
+     * @param args      the command line arguments, where args[1] is the path to the output file.
+     * @return false, since commands with a request ID are never Z reports.
+     */
+    private static boolean executeOnce(String requestId, String line, String[] parts, String[] args) {
+        if (requestId.isEmpty()) {
+            FileOutput.writeToFile(args[1], "COMMAND: " + line, true, true);
+            FileOutput.writeToFile(args[1], "ERROR: Request ID must not be empty!", true, true);
+            return false;
+        }
+        RequestCache cache = BookingSystem.getRequestCache();
+        RequestCache.Response response = cache.claim(requestId, line);
+        if (response != null) {
+            if (response.getCommand().equals(line)) {
+                FileOutput.writeBytes(args[1], response.getOutput());
+            } else {
+                FileOutput.writeToFile(args[1], "COMMAND: " + line, true, true);
+                FileOutput.writeToFile(args[1], "ERROR: Request ID " + requestId + " was already used for a different command!", true, true);
+            }
+            return false;
+        }
+        FileOutput.beginCapture(args[1]);
+        try {
+            dispatch(line, parts, args);
+        } finally {
+            cache.complete(requestId, FileOutput.endCapture(args[1]));
+        }
+        return false;
+    }
+
+    private static boolean isMutating(String command) {
+        switch (command) {
+            case "INIT_VOYAGE":
+            case "SELL_TICKET":
+            case "REFUND_TICKET":
+            case "HOLD_SEAT":
+            case "CONFIRM_HOLD":
+            case "WAITLIST":
+            case "CANCEL_WAITLIST":
+            case "CANCEL_VOYAGE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean dispatch(String line, String[] parts, String[] args) {
+        boolean zReport = false;
+
+        switch (parts[0]) {
+            case "INIT_VOYAGE":
+                String departure = null;
+                if (parts.length > 2 && parts[parts.length - 1].startsWith(Departures.DEPARTURE_PREFIX)) {
+                    departure = parts[parts.length - 1].substring(Departures.DEPARTURE_PREFIX.length());
+                    parts = Arrays.copyOf(parts, parts.length - 1);
+                    line = String.join("\t", parts);
+                }
+                if (SeatLayout.isKnownType(parts[1])) {
+                    Print.printInitVoyageCommand(parts, departure, args);
+                    int busId = Integer.parseInt(parts[2]);
+                    Bus existingBus = BookingSystem.getBusById(busId);
+                    if (existingBus != null) {
+                        String errorMessage = "ERROR: There is already a voyage with ID of " + busId + "!";
                         FileOutput.writeToFile(args[1], errorMessage, true, true);
-                    }
-                    lastCommandIsZReport = false;
-                    break;
-                case "Z_REPORT":
-
-                    if (parts.length < 2) {
-                        FileOutput.writeToFile(args[1], "COMMAND: Z_REPORT", true, true);
-                        FileOutput.writeToFile(args[1], "Z Report:", true, true);
-                        FileOutput.writeToFile(args[1], "----------------", true, true);
-                        Print.printZReport(args);
+                    } else if (BookingSystem.hasDeparted(busId)) {
+                        FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
                     } else {
-                        FileOutput.writeToFile(args[1], "COMMAND: Z_REPORT\t" + parts[1], true, true);
-                        FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"Z_REPORT\" command!", true, true);
-                    }
-                    lastCommandIsZReport = true;
-                    break;
-                case "SELL_TICKET":
-                    if (parts.length < 3) {
-
-                        if (parts.length == 2) {
-                            String sellTicketCommand2 = String.format("COMMAND: SELL_TICKET\t%s", parts[1]);
-                            FileOutput.writeToFile(args[1], sellTicketCommand2, true, true);
-                        }
-                        if (parts.length == 1) {
-                            String sellTicketCommand1 = String.format("COMMAND: SELL_TICKET");
-                            FileOutput.writeToFile(args[1], sellTicketCommand1, true, true);
+                        try {
+                            InitVoyage.busPlacer(line, departure, args);
+                            Print.printInitVoyageInfo(parts, args);
+                        } catch (IllegalArgumentException e) {
+                            FileOutput.writeToFile(args[1], e.getMessage(), true, true);
                         }
+                    }
+                } else {
+                    Print.printInitVoyageCommand(parts, departure, args);
+                    String errorMessage = "ERROR: Erroneous usage of \"INIT_VOYAGE\" command!";
+                    FileOutput.writeToFile(args[1], errorMessage, true, true);
+                }
+                zReport = false;
+                break;
+            case "Z_REPORT":
 
-                        String errorMessage = "ERROR: Erroneous usage of \"SELL_TICKET\" command!";
-                        FileOutput.writeToFile(args[1], errorMessage, true, true);
-                    } else {
-                        String sellTicketCommand = String.format("COMMAND: SELL_TICKET\t%s\t%s", parts[1], parts[2]);
-                        FileOutput.writeToFile(args[1], sellTicketCommand, true, true);
-                        SellTicket.seller(Integer.parseInt(parts[1]), parts[2], args);
+                if (parts.length < 2) {
+                    FileOutput.writeToFile(args[1], "COMMAND: Z_REPORT", true, true);
+                    FileOutput.writeToFile(args[1], "Z Report:", true, true);
+                    FileOutput.writeToFile(args[1], "----------------", true, true);
+                    Print.printZReport(args);
+                } else {
+                    FileOutput.writeToFile(args[1], "COMMAND: Z_REPORT\t" + parts[1], true, true);
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"Z_REPORT\" command!", true, true);
+                }
+                zReport = true;
+                break;
+            case "SELL_TICKET":
+                if (parts.length < 3) {
+
+                    if (parts.length == 2) {
+                        String sellTicketCommand2 = String.format("COMMAND: SELL_TICKET\t%s", parts[1]);
+                        FileOutput.writeToFile(args[1], sellTicketCommand2, true, true);
                     }
-                    lastCommandIsZReport = false;
-                    break;
-
-                case "REFUND_TICKET":
-                    if (parts.length < 3) {
-                        if (parts.length == 2) {
-                            String sellTicketCommand2 = String.format("COMMAND: REFUND_TICKET\t%s", parts[1]);
-                            FileOutput.writeToFile(args[1], sellTicketCommand2, true, true);
-                        }
-                        if (parts.length == 1) {
-                            String sellTicketCommand1 = String.format("COMMAND: REFUND_TICKET");
-                            FileOutput.writeToFile(args[1], sellTicketCommand1, true, true);
-                        }
-                        FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"REFUND_TICKET\" command!", true, true);
-                    } else {
-                        String refundTicketCommand = String.format("COMMAND: REFUND_TICKET\t%s\t%s", parts[1], parts[2]);
-                        FileOutput.writeToFile(args[1], refundTicketCommand, true, true);
-                        RefundTicket.refunder(Integer.parseInt(parts[1]), parts[2], args);
+                    if (parts.length == 1) {
+                        String sellTicketCommand1 = String.format("COMMAND: SELL_TICKET");
+                        FileOutput.writeToFile(args[1], sellTicketCommand1, true, true);
+                    }
+
+                    String errorMessage = "ERROR: Erroneous usage of \"SELL_TICKET\" command!";
+                    FileOutput.writeToFile(args[1], errorMessage, true, true);
+                } else {
+                    String sellTicketCommand = String.format("COMMAND: SELL_TICKET\t%s\t%s", parts[1], parts[2]);
+                    FileOutput.writeToFile(args[1], sellTicketCommand, true, true);
+                    SellTicket.seller(Integer.parseInt(parts[1]), parts[2], args);
+                }
+                zReport = false;
+                break;
+
+            case "REFUND_TICKET":
+                if (parts.length < 3) {
+                    if (parts.length == 2) {
+                        String sellTicketCommand2 = String.format("COMMAND: REFUND_TICKET\t%s", parts[1]);
+                        FileOutput.writeToFile(args[1], sellTicketCommand2, true, true);
+                    }
+                    if (parts.length == 1) {
+                        String sellTicketCommand1 = String.format("COMMAND: REFUND_TICKET");
+                        FileOutput.writeToFile(args[1], sellTicketCommand1, true, true);
                     }
-                    lastCommandIsZReport = false;
-                    break;
-                case "CANCEL_VOYAGE":
-                    if (parts.length < 3) {
-                        if (parts.length == 1) {
-                            FileOutput.writeToFile(args[1], "COMMAND: CANCEL_VOYAGE", true, true);
-                            FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"CANCEL_VOYAGE\" command!", true, true);
-
-                        } else {
-                            int busId = Integer.parseInt(parts[1]);
-                            String cancelVoyageCommand = String.format("COMMAND: CANCEL_VOYAGE\t%s", parts[1]);
-                            FileOutput.writeToFile(args[1], cancelVoyageCommand, true, true);
-                            Bus bus = BookingSystem.getBusById(busId);
-                            if(Integer.parseInt(parts[1]) <= 0){
-                                FileOutput.writeToFile(args[1], "ERROR: " + busId + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
-                            } else if (bus == null) {
-                                FileOutput.writeToFile(args[1], "ERROR: There is no voyage with ID of " + busId + "!", true, true);
-                            } else  {
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"REFUND_TICKET\" command!", true, true);
+                } else {
+                    String refundTicketCommand = String.format("COMMAND: REFUND_TICKET\t%s\t%s", parts[1], parts[2]);
+                    FileOutput.writeToFile(args[1], refundTicketCommand, true, true);
+                    RefundTicket.refunder(Integer.parseInt(parts[1]), parts[2], args);
+                }
+                zReport = false;
+                break;
+            case "HOLD_SEAT":
+                FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+                if (parts.length != 4) {
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"HOLD_SEAT\" command!", true, true);
+                } else if (isPositiveId(parts[1], args)) {
+                    HoldSeat.holder(Integer.parseInt(parts[1]), parts[2], parts[3], args);
+                }
+                zReport = false;
+                break;
+            case "CONFIRM_HOLD":
+                FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+                if (parts.length != 4) {
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"CONFIRM_HOLD\" command!", true, true);
+                } else if (isPositiveId(parts[1], args)) {
+                    HoldSeat.confirmer(Integer.parseInt(parts[1]), parts[2], parts[3], args);
+                }
+                zReport = false;
+                break;
+            case "WAITLIST":
+                FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+                if (parts.length != 3 && parts.length != 4) {
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"WAITLIST\" command!", true, true);
+                } else if (isPositiveId(parts[1], args)) {
+                    WaitlistTicket.waitlister(Integer.parseInt(parts[1]), parts[2], parts.length == 4 ? parts[3] : null, args);
+                }
+                zReport = false;
+                break;
+            case "CANCEL_WAITLIST":
+                FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+                if (parts.length != 3) {
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"CANCEL_WAITLIST\" command!", true, true);
+                } else if (isPositiveId(parts[1], args)) {
+                    WaitlistTicket.canceller(Integer.parseInt(parts[1]), parts[2], args);
+                }
+                zReport = false;
+                break;
+            case "TOP_REVENUE":
+            case "TOP_OCCUPANCY":
+            case "RANGE_REPORT":
+                FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+                VoyageRanking.query(parts, args);
+                zReport = false;
+                break;
+            case "REVENUE_REPORT":
+                FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+                RevenueReport.query(parts, args);
+                zReport = false;
+                break;
+            case "EXPORT":
+                VoyageExport.export(parts, args);
+                zReport = false;
+                break;
+            case "CANCEL_VOYAGE":
+                if (parts.length < 3) {
+                    if (parts.length == 1) {
+                        FileOutput.writeToFile(args[1], "COMMAND: CANCEL_VOYAGE", true, true);
+                        FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"CANCEL_VOYAGE\" command!", true, true);
+
+                    } else {
+                        int busId = Integer.parseInt(parts[1]);
+                        String cancelVoyageCommand = String.format("COMMAND: CANCEL_VOYAGE\t%s", parts[1]);
+                        FileOutput.writeToFile(args[1], cancelVoyageCommand, true, true);
+                        Bus bus = BookingSystem.getBusById(busId);
+                        if(Integer.parseInt(parts[1]) <= 0){
+                            FileOutput.writeToFile(args[1], "ERROR: " + busId + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
+                        } else if (bus == null) {
+                            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
+                        } else  {
+                            bus.beginUpdate();
+                            try {
                                 CancelVoyage.printVoyageCancellation(Integer.parseInt(parts[1]), args);
                                 BookingSystem.removeBus(busId);
+                            } finally {
+                                bus.endUpdate();
                             }
                         }
-
-                    } else {
-                        String cancelVoyageCommand1 = String.format("COMMAND: CANCEL_VOYAGE\t%s\t%s", parts[1],parts[2]);
-                        FileOutput.writeToFile(args[1], cancelVoyageCommand1, true, true);
-                        FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"CANCEL_VOYAGE\" command!", true, true);
                     }
 
-                    lastCommandIsZReport = false;
-                    break;
+                } else {
+                    String cancelVoyageCommand1 = String.format("COMMAND: CANCEL_VOYAGE\t%s\t%s", parts[1],parts[2]);
+                    FileOutput.writeToFile(args[1], cancelVoyageCommand1, true, true);
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"CANCEL_VOYAGE\" command!", true, true);
+                }
 
-                case "PRINT_VOYAGE":
-                    if (parts.length < 2) {
-                        FileOutput.writeToFile(args[1], "COMMAND: PRINT_VOYAGE", true, true);
-                        FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"PRINT_VOYAGE\" command!", true, true);
-                    } else {
-                        try {
-                            int voyageId = Integer.parseInt(parts[1]);
-                            FileOutput.writeToFile(args[1], "COMMAND: PRINT_VOYAGE\t" + parts[1], true, true);
-                            Print.printVoyage(voyageId, args);
-                        } catch (NumberFormatException e) {
-                            FileOutput.writeToFile(args[1], "ERROR: " + parts[1] + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
-                        }
+                zReport = false;
+                break;
+
+            case "PRINT_VOYAGE":
+                if (parts.length < 2) {
+                    FileOutput.writeToFile(args[1], "COMMAND: PRINT_VOYAGE", true, true);
+                    FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"PRINT_VOYAGE\" command!", true, true);
+                } else {
+                    try {
+                        int voyageId = Integer.parseInt(parts[1]);
+                        FileOutput.writeToFile(args[1], "COMMAND: PRINT_VOYAGE\t" + parts[1], true, true);
+                        Print.printVoyage(voyageId, args);
+                    } catch (NumberFormatException e) {
+                        FileOutput.writeToFile(args[1], "ERROR: " + parts[1] + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
                     }
-                    lastCommandIsZReport = false;
-                    break;
+                }
+                zReport = false;
+                break;
 
-                default:
-                    if (parts.length == 1) {
-                        FileOutput.writeToFile(args[1], "COMMAND: " + parts[0], true, true);
-                        FileOutput.writeToFile(args[1], "ERROR: There is no command namely " + parts[0] + "!", true, true);
-                    } else {
-                        FileOutput.writeToFile(args[1], "COMMAND: " + parts[0] + "\t" + parts[1], true, true);
-                        FileOutput.writeToFile(args[1], "ERROR: There is no command namely " + parts[0] + "!", true, true);
+            default:
+                if (parts.length == 1) {
+                    FileOutput.writeToFile(args[1], "COMMAND: " + parts[0], true, true);
+                    FileOutput.writeToFile(args[1], "ERROR: There is no command namely " + parts[0] + "!", true, true);
+                } else {
+                    FileOutput.writeToFile(args[1], "COMMAND: " + parts[0] + "\t" + parts[1], true, true);
+                    FileOutput.writeToFile(args[1], "ERROR: There is no command namely " + parts[0] + "!", true, true);
 
-                    }
-                    lastCommandIsZReport = false;
-                    break;
-            }
+                }
+                zReport = false;
+                break;
         }
-        if (!lastCommandIsZReport) {
-            FileOutput.writeToFile(args[1], "Z Report:", true, true);
-            FileOutput.writeToFile(args[1], "----------------", true, true);
-            Print.printZReport(args);
+        return zReport;
+    }
+
+    /**
+     * Checks that a voyage ID is a positive integer and writes the usual error message if it is not.
+     *
+     * @param id   the voyage ID as given in the command.
+     * @param args the command line arguments, where args[1] is the path to the output file.
+     * @return true if the ID is a positive integer.
+     */
+    private static boolean isPositiveId(String id, String[] args) {
+        try {
+            if (Integer.parseInt(id) > 0) {
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
         }
+        FileOutput.writeToFile(args[1], "ERROR: " + id + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
+        return false;
     }
-}
 
+    /**
+     * Writes the Z report that closes the output when the last command was not a Z report itself.
+     *
+     * @param args the command line arguments, where args[1] is the path to the output file.
+     */
+    public static void printFinalZReport(String[] args) {
+        FileOutput.writeToFile(args[1], "Z Report:", true, true);
+        FileOutput.writeToFile(args[1], "----------------", true, true);
+        Print.printZReport(args);
+    }
+}
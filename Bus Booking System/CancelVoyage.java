@@ -17,34 +17,26 @@ public class CancelVoyage {
         Bus bus = BookingSystem.getBusById(busId);
         FileOutput.writeToFile(args[1], "Voyage " + bus.getId() + " was successfully cancelled!", true, true);
         FileOutput.writeToFile(args[1], "Voyage details can be found below:", true, true);
-        FileOutput.writeToFile(args[1], "Voyage " + bus.getId(), true, true);
-        FileOutput.writeToFile(args[1], bus.getFrom() + "-" + bus.getTo(), true, true);
+        FileOutput.writeBytes(args[1], bus.getReportHeader());
 
-        double totalRefundAmount = 0;
-        for (int i = 0; i < bus.getSeats().length; i++) {
-            if (bus.getSeats()[i]) {
-                try {
-                    double refundAmount = 0;
-
-                    if (bus instanceof PremiumBus) {
-                        if (i % 3 == 0) {
-                            refundAmount = (((PremiumBus) bus).getPremiumFee() + 100 ) / 100.0 * bus.getPrice() ;
-                        }
-                        else {
-                            refundAmount = bus.getPrice();
-                        }
-                    } else if (bus instanceof StandardBus) {
-                        refundAmount =  bus.getPrice();
-                    }
+        double regularPrice = bus.getCancellationRefund(SeatLayout.REGULAR_SEAT);
+        double premiumPrice = bus.getCancellationRefund(SeatLayout.PREMIUM_SEAT);
 
-                    totalRefundAmount += refundAmount;
-
-                } catch (Exception e) {
-                    FileOutput.writeToFile(args[1], "Error while refunding seat " + (i + 1) + ": " + e.getMessage(), true, true);
+        // Every sold seat is refunded in full, so the refund follows from the occupancy counters of the bus.
+        // Fractional prices are summed seat by seat in seat order instead, which keeps the rounding of the total unchanged.
+        double totalRefundAmount = 0;
+        if (Bus.isExactAmount(regularPrice) && Bus.isExactAmount(premiumPrice)) {
+            totalRefundAmount = bus.getSoldPremiumSeats() * premiumPrice + bus.getSoldRegularSeats() * regularPrice;
+        } else {
+            int remaining = bus.getSoldPremiumSeats() + bus.getSoldRegularSeats();
+            for (int i = 0; remaining > 0; i++) {
+                if (bus.isSold(i)) {
+                    totalRefundAmount += bus.getCancellationRefund(bus.getSeatClass(i));
+                    remaining--;
                 }
             }
         }
-        bus.addRevenue(-totalRefundAmount);
+        bus.deductCancellation(totalRefundAmount);
 
         String revenue = "";
 
@@ -0,0 +1,78 @@
+/**
+ * The {@code CoachBus} class extends the {@code Bus} abstract class and represents a bus type that is described by a
+ * {@code SeatLayout} read from the layouts file instead of a class of its own, such as a 2+1 sleeper coach.
+ * Its INIT_VOYAGE command carries the price, followed by the refund cut if its tickets are refundable and by the premium fee
+ * if it has premium seats.
+ */
+public class CoachBus extends Bus {
+    /**
+     * Constructs a new CoachBus with the given layout.
+     *
+     * @param id         the unique identifier for the bus
+     * @param from       the starting point of the bus route
+     * @param to         the destination point of the bus route
+     * @param rows       the number of rows of seats in the bus
+     * @param price      the base price of a regular seat ticket
+     * @param layout     the seating of the bus type
+     * @param refundCut  the percentage deduction applied when refunding a ticket
+     * @param premiumFee the additional fee applied to premium seats
+     */
+    public CoachBus(int id, String from, String to, int rows, double price, SeatLayout layout, double refundCut, double premiumFee) {
+        super(id, from, to, rows, price, layout, refundCut, premiumFee);
+    }
+
+    /**
+     * Factory method to create a new CoachBus instance from a given line of data.
+     *
+     * @param line   a string containing the bus data in tab-separated format
+     * @param layout the layout of the bus type named in the line
+     * @return a new CoachBus object
+     * @throws IllegalArgumentException if the line has the wrong number of fields or any of its parameters is invalid
+     */
+    public static CoachBus createCoachBus(String line, SeatLayout layout) {
+        String[] parts = line.split("\\t");
+        int refundCutField = layout.isRefundable() ? 7 : -1;
+        int premiumFeeField = layout.hasPremiumSeats() ? (layout.isRefundable() ? 8 : 7) : -1;
+        if (parts.length != 7 + (refundCutField > 0 ? 1 : 0) + (premiumFeeField > 0 ? 1 : 0)) {
+            throw new IllegalArgumentException("ERROR: Erroneous usage of \"INIT_VOYAGE\" command!");
+        }
+
+        int id = parsePositive(parts[2], "ID of a voyage");
+        int rows = parsePositive(parts[5], "number of seat rows");
+        double price = parseNumber(parts[6], 1, Integer.MAX_VALUE, "is not a positive number, price must be a positive number!");
+        double refundCut = refundCutField > 0 ? parseNumber(parts[refundCutField], 0, 100,
+                "is not an integer that is in range of [0, 100], refund cut must be an integer that is in range of [0, 100]!") : 0;
+        double premiumFee = premiumFeeField > 0 ? parseNumber(parts[premiumFeeField], 0, Integer.MAX_VALUE,
+                "is not a non-negative integer, premium fee must be a non-negative integer!") : 0;
+        return new CoachBus(id, parts[3], parts[4], rows, price, layout, refundCut, premiumFee);
+    }
+
+    private static int parsePositive(String value, String name) {
+        int number = 0;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        if (number <= 0) {
+            throw new IllegalArgumentException("ERROR: " + number + " is not a positive integer, " + name + " must be a positive integer!");
+        }
+        return number;
+    }
+
+    /**
+     * Parses a number whose whole part has to lie in a range, reporting it as the built-in bus types do.
+     */
+    private static double parseNumber(String value, int min, int max, String problem) {
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ERROR: 0 " + problem);
+        }
+        if ((int) number < min || (int) number > max) {
+            throw new IllegalArgumentException("ERROR: " + (int) number + " " + problem);
+        }
+        return number;
+    }
+}
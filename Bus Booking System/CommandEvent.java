@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code CommandEvent} class is a Java Flight Recorder event that is recorded for every executed command, with the command
+ * type, the voyage and number of seats it refers to, its outcome and its duration, including the expiry of due seat holds.
+ * While an enabled event is in progress, the first error line written to the output becomes its error message.
+ * Callers only touch the event classes once {@code FlightRecorder.isInitialized()} is true, since loading an event class sets up
+ * the flight recorder, which would add a noticeable delay to every run that is not recorded.
+ */
+@Name("busbooking.Command")
+@Label("Command")
+@Category({"Bus Booking", "Commands"})
+@Description("Execution of a single input command")
+@StackTrace(false)
+public class CommandEvent extends Event {
+    private static final ThreadLocal<CommandEvent> ACTIVE = new ThreadLocal<>();
+    private static final AtomicInteger ACTIVE_EVENTS = new AtomicInteger();
+
+    @Label("Command")
+    String command;
+
+    @Label("Voyage ID")
+    @Description("The voyage the command refers to, or 0 if it does not name a valid one")
+    int voyageId;
+
+    @Label("Seat Count")
+    @Description("The number of seats or waitlisted seats the command asks for")
+    int seatCount;
+
+    @Label("Outcome")
+    @Description("OK, ERROR if the command wrote an error line, or EXCEPTION if it failed")
+    String outcome;
+
+    @Label("Error")
+    String error;
+
+    /**
+     * Starts the event of a command if a recording has it enabled.
+     *
+     * @param parts the fields of the command
+     * @return the started event, or null if the event is disabled
+     */
+    static CommandEvent start(String[] parts) {
+        CommandEvent event = new CommandEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.command = parts[0];
+        int idField = parts[0].equals("INIT_VOYAGE") ? 2 : 1;
+        event.voyageId = parts.length > idField ? parseId(parts[idField]) : 0;
+        switch (parts[0]) {
+            case "SELL_TICKET":
+            case "REFUND_TICKET":
+            case "HOLD_SEAT":
+            case "CONFIRM_HOLD":
+                event.seatCount = parts.length > 2 ? parts[2].split("_").length : 0;
+                break;
+            case "WAITLIST":
+                event.seatCount = parts.length > 2 ? Math.max(0, parseId(parts[2])) : 0;
+                break;
+            default:
+                break;
+        }
+        event.outcome = "OK";
+        ACTIVE.set(event);
+        ACTIVE_EVENTS.incrementAndGet();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits the event of a command.
+     *
+     * @param event     the event returned by {@link #start(String[])}
+     * @param completed false if the command ended with an exception
+     */
+    static void finish(CommandEvent event, boolean completed) {
+        event.end();
+        ACTIVE.remove();
+        ACTIVE_EVENTS.decrementAndGet();
+        if (!completed) {
+            event.outcome = "EXCEPTION";
+        }
+        event.commit();
+    }
+
+    /**
+     * Inspects a line written to the output and marks the command in progress on this thread as failed if it is an error.
+     * Error lines start with "ERROR" in any case, since some commands report errors as "Error:".
+     *
+     * @param content the written content
+     */
+    static void outputWritten(String content) {
+        if (ACTIVE_EVENTS.get() == 0 || !content.regionMatches(true, 0, "ERROR", 0, 5)) {
+            return;
+        }
+        CommandEvent event = ACTIVE.get();
+        if (event != null && event.error == null) {
+            event.outcome = "ERROR";
+            event.error = content;
+        }
+    }
+
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * The {@code Departures} class handles the departure times of voyages.
+ * A voyage initialized with a last field such as "departure=2026-05-01T08:30" is kept in the departure index of the booking
+ * system, ordered by time. Before every command, the voyages whose departure time has passed according to the clock of the
+ * booking system are sealed: their final revenue and seat map are appended to a gzip archive and they are removed from the
+ * booking system, so that no more tickets are sold or refunded and reports only visit voyages that are still to depart.
+ *
+ * <p>Each archive line holds the ID, the route, the bus type, the departure time, the final revenue and a seat map with an
+ * "X" for every sold seat and a "*" for every other seat, separated by tabs. The archive is written next to the output file,
+ * with ".departed.gz" appended to its name, unless the system property {@value #ARCHIVE_PROPERTY} names another path. The
+ * property is ignored by the runs of a batch, which would otherwise all write to the same archive.
+ *
+ * <p>Voyages only depart while the clock of the booking system runs. A file run keeps its clock still and rejects departure
+ * times that have already passed, so it never archives anything unless it runs with {@code -Dbusbooking.clock=system}.
+ * Follow mode always uses the wall clock, and seals departed voyages even while no command arrives.
+ */
+public class Departures {
+    public static final String DEPARTURE_PREFIX = "departure=";
+    public static final String ARCHIVE_PROPERTY = "busbooking.archive";
+
+    /**
+     * Parses a departure time, either an ISO-8601 instant such as "2026-05-01T08:30:00Z" or a date and time of day such as
+     * "2026-05-01T08:30", which is taken as UTC.
+     *
+     * @param departure the departure time as given in the command
+     * @return the departure time in milliseconds
+     * @throws IllegalArgumentException if the departure time is malformed or has already passed
+     */
+    public static long parse(String departure) {
+        Instant time = toInstant(departure);
+        if (time.toEpochMilli() <= BookingSystem.currentTimeMillis()) {
+            throw new IllegalArgumentException("ERROR: " + departure + " has already passed, departure time must be in the future!");
+        }
+        return time.toEpochMilli();
+    }
+
+    private static Instant toInstant(String departure) {
+        try {
+            return Instant.parse(departure);
+        } catch (DateTimeParseException e) {
+            // Not an instant, so it has to be a date and time of day.
+        }
+        try {
+            return LocalDateTime.parse(departure).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("ERROR: " + departure + " is not a valid departure time, departure time must be given as yyyy-MM-ddTHH:mm!");
+        }
+    }
+
+    /**
+     * Seals every voyage whose departure time has passed according to the clock of the booking system: its final state is
+     * archived and the voyage is removed.
+     *
+     * @param args Command-line arguments, where args[1] is the path to the output file the archive is written next to.
+     */
+    public static void sealDeparted(String[] args) {
+        for (Bus bus : BookingSystem.takeDeparted(BookingSystem.currentTimeMillis())) {
+            bus.beginUpdate();
+            try {
+                if (!bus.isRetired()) {
+                    FileOutput.writeToFile(archivePath(args[1]), archiveRecord(bus), true, true);
+                    BookingSystem.sealBus(bus.getId());
+                }
+            } finally {
+                bus.endUpdate();
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the archive that belongs to an output file.
+     *
+     * @param outputPath the path to the output file
+     * @return the value of the archive property, or the output path followed by ".departed.gz" if the property is not set or
+     *         the booking system of the calling thread belongs to an isolated run
+     */
+    public static String archivePath(String outputPath) {
+        String nextToOutput = outputPath + ".departed.gz";
+        return BookingSystem.archivesNextToOutput() ? nextToOutput : System.getProperty(ARCHIVE_PROPERTY, nextToOutput);
+    }
+
+    /**
+     * Returns the path of the archive of one shard process, which is the archive path of the output file with the number of
+     * the shard inserted before ".gz", so that the shards never write to the same file.
+     *
+     * @param outputPath the path to the output file of the sharded run
+     * @param shard      the number of the shard
+     * @return the archive path of the shard
+     */
+    public static String shardArchivePath(String outputPath, int shard) {
+        String path = archivePath(outputPath);
+        return path.endsWith(".gz") ? path.substring(0, path.length() - 3) + "." + shard + ".gz" : path + "." + shard;
+    }
+
+    private static String archiveRecord(Bus bus) {
+        StringBuilder record = new StringBuilder();
+        record.append(bus.getId()).append('\t').append(bus.getFrom()).append('\t').append(bus.getTo()).append('\t')
+                .append(bus.getLayout().getName()).append('\t').append(Instant.ofEpochMilli(bus.getDeparture())).append('\t')
+                .append(String.format(Locale.US, "%.2f", bus.getRevenue())).append('\t');
+        for (int i = 0; i < bus.getCapacity(); i++) {
+            record.append(bus.isSold(i) ? 'X' : '*');
+        }
+        return record.toString();
+    }
+}
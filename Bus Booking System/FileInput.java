@@ -1,20 +1,25 @@
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 public class FileInput {
     /**
      * Reads the file at the given path and returns contents of it in a string array.
      *
-     * @param path              Path to the file that is going to be read.
+     * @param path              Path to the file that is going to be read, which is decompressed if it ends with ".gz".
      * @param discardEmptyLines If true, discards empty lines with respect to trim; else, it takes all the lines from the file.
      * @param trim              Trim status; if true, trims (strip in Python) each line; else, it leaves each line as-is.
      * @return Contents of the file as a string array, returns null if there is not such a file or this program does not have sufficient permissions to read that file.
      */
     public static String[] readFile(String path, boolean discardEmptyLines, boolean trim) {
         try {
-            List<String> lines = Files.readAllLines(Paths.get(path)); //Gets the content of file to the list.
+            List<String> lines = path.endsWith(".gz") ? readGzipLines(path) : Files.readAllLines(Paths.get(path)); //Gets the content of file to the list.
             if (discardEmptyLines) { //Removes the lines that are empty with respect to trim.
                 lines.removeIf(line -> line.trim().equals(""));
             }
@@ -27,4 +32,16 @@ public class FileInput {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    private static List<String> readGzipLines(String path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(Paths.get(path))), StandardCharsets.UTF_8.newDecoder()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -1,8 +1,161 @@
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+import jdk.jfr.FlightRecorder;
 
+/**
+ * The {@code FileOutput} class writes UTF-8 text to files. Every file stays open between calls: content is encoded straight
+ * into a reusable direct buffer, which is written to the file channel whenever it fills up, when the file is flushed or closed,
+ * and when the program exits. Files whose path ends with ".gz" are written as a gzip stream.
+ *
+ * <p>Anything that reads a file written here has to call {@link #flush(String)} or {@link #close(String)} for it first.
+ * Files are identified by the path string they are written with.
+ *
+ * <p>A thread can capture what it appends to a file, for example to remember the response of a command. Captures belong to
+ * the thread that started them, so the output other threads append to the same file at the same time is not captured.
+ * A diverting capture keeps what the thread appends in memory only, without writing it to the file.
+ */
 public class FileOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Map<String, Sink> SINKS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Capture> CAPTURES = new ThreadLocal<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(FileOutput::closeAll));
+    }
+
+    /**
+     * The bytes a thread has appended to a file since it started capturing it, linked to the captures the thread started
+     * before.
+     */
+    private static final class Capture {
+        private final String path;
+        private final boolean divert;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private Capture outer;
+
+        Capture(String path, boolean divert, Capture outer) {
+            this.path = path;
+            this.divert = divert;
+            this.outer = outer;
+        }
+    }
+
+    /**
+     * An open output file together with its encoder and buffer.
+     */
+    private static final class Sink {
+        private final String path;
+        private final FileChannel channel;
+        private final GZIPOutputStream gzip;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private byte[] chunk;
+
+        Sink(String path, boolean append) throws IOException {
+            this.path = path;
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+            gzip = path.endsWith(".gz") ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) : null;
+        }
+
+        synchronized void write(CharSequence content, boolean newLine) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(content);
+            encoder.reset();
+            CoderResult result;
+            while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+                drain();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+            if (newLine) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                buffer.put((byte) '\n');
+            }
+        }
+
+        synchronized void write(byte[] content) throws IOException {
+            int offset = 0;
+            while (offset < content.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int length = Math.min(buffer.remaining(), content.length - offset);
+                buffer.put(content, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the file, or to the gzip stream of the file.
+         */
+        private void drain() throws IOException {
+            buffer.flip();
+            OutputFlushEvent event = FlightRecorder.isInitialized() ? new OutputFlushEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            int bytes = buffer.remaining();
+            if (gzip == null) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } else {
+                if (chunk == null) {
+                    chunk = new byte[BUFFER_SIZE];
+                }
+                int length = buffer.remaining();
+                buffer.get(chunk, 0, length);
+                gzip.write(chunk, 0, length);
+            }
+            buffer.clear();
+            if (event != null && event.shouldCommit()) {
+                event.path = path;
+                event.bytes = bytes;
+                event.compressed = gzip != null;
+                event.commit();
+            }
+        }
+
+        synchronized void flush() throws IOException {
+            drain();
+            if (gzip != null) {
+                gzip.flush();
+            }
+        }
+
+        synchronized void close() throws IOException {
+            try {
+                drain();
+                if (gzip != null) {
+                    gzip.finish();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
     /**
      * This method writes given content to file at given path.
      *
@@ -12,18 +165,151 @@ public class FileOutput {
      * @param newLine True if wanted to append a new line after content, false if vice versa.
      */
     public static void writeToFile(String path, String content, boolean append, boolean newLine) {
-        PrintStream ps = null;
+        if (FlightRecorder.isInitialized()) {
+            CommandEvent.outputWritten(content);
+        }
+        if (CAPTURES.get() != null && capture(path, content.getBytes(StandardCharsets.UTF_8), newLine)) {
+            return;
+        }
         try {
-            ps = new PrintStream(new FileOutputStream(path, append));
-            ps.print(content + (newLine ? "\n" : ""));
-        } catch (FileNotFoundException e) {
+            sink(path, append).write(content, newLine);
+        } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            if (ps != null) { //Flushes all the content and closes the stream if it has been successfully created.
-                ps.flush();
-                ps.close();
+        }
+    }
+
+    /**
+     * Appends bytes that have already been encoded in UTF-8, such as cached voyage headers, to the file at the given path.
+     *
+     * @param path    Path for the file content is going to be written.
+     * @param content UTF-8 encoded content that is going to be appended to file.
+     */
+    public static void writeBytes(String path, byte[] content) {
+        if (CAPTURES.get() != null && capture(path, content, false)) {
+            return;
+        }
+        try {
+            sink(path, true).write(content);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts recording the bytes that the calling thread appends to the file at the given path, as they are written to it.
+     * Captures of the same file may be nested; every running capture records the bytes.
+     *
+     * @param path Path of the file.
+     */
+    public static void beginCapture(String path) {
+        CAPTURES.set(new Capture(path, false, CAPTURES.get()));
+    }
+
+    /**
+     * Starts collecting the bytes that the calling thread appends to the file at the given path in memory, instead of
+     * writing them to the file. The collected bytes are returned by {@link #endCapture(String)}.
+     *
+     * @param path Path of the file.
+     */
+    public static void beginDivert(String path) {
+        CAPTURES.set(new Capture(path, true, CAPTURES.get()));
+    }
+
+    /**
+     * Stops the capture or diversion of the file at the given path that the calling thread started last.
+     *
+     * @param path Path of the file.
+     * @return the bytes the calling thread appended since {@link #beginCapture(String)}
+     */
+    public static byte[] endCapture(String path) {
+        Capture inner = null;
+        for (Capture capture = CAPTURES.get(); capture != null; inner = capture, capture = capture.outer) {
+            if (capture.path.equals(path)) {
+                if (inner != null) {
+                    inner.outer = capture.outer;
+                } else if (capture.outer != null) {
+                    CAPTURES.set(capture.outer);
+                } else {
+                    CAPTURES.remove();
+                }
+                return capture.bytes.toByteArray();
             }
+        }
+        return new byte[0];
+    }
 
+    /**
+     * Records appended bytes in the running captures of the calling thread, up to and including the innermost diversion.
+     *
+     * @return true if the bytes have been diverted and must not be written to the file
+     */
+    private static boolean capture(String path, byte[] content, boolean newLine) {
+        for (Capture capture = CAPTURES.get(); capture != null; capture = capture.outer) {
+            if (capture.path.equals(path)) {
+                capture.bytes.write(content, 0, content.length);
+                if (newLine) {
+                    capture.bytes.write('\n');
+                }
+                if (capture.divert) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes everything that has been buffered for the file at the given path to the file.
+     *
+     * @param path Path of the file.
+     */
+    public static void flush(String path) {
+        Sink sink = SINKS.get(path);
+        if (sink != null) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes everything that has been buffered for the file at the given path and closes it. A gzip file is completed, so
+     * that it can be read; writing to the file again appends a new gzip member.
+     *
+     * @param path Path of the file.
+     */
+    public static void close(String path) {
+        Sink sink = SINKS.remove(path);
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void closeAll() {
+        for (String path : SINKS.keySet()) {
+            close(path);
+        }
+    }
+
+    private static Sink sink(String path, boolean append) throws IOException {
+        if (!append) {
+            close(path);
+        }
+        Sink sink = SINKS.get(path);
+        if (sink == null) {
+            sink = new Sink(path, append);
+            Sink raced = SINKS.putIfAbsent(path, sink);
+            if (raced != null) {
+                sink.close();
+                sink = raced;
+            }
         }
+        return sink;
     }
-}
\ No newline at end of file
+}
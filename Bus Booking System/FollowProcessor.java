@@ -0,0 +1,295 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code FollowProcessor} class keeps an input file open and executes the commands that are appended to it while it grows.
+ * Only the newly appended lines are read and executed, their results are appended to the output file right away, and the
+ * voyages are kept in one {@code BookingSystem} for the whole session, so each append costs time proportional to its own size.
+ * When following stops, the output is closed in the same way as a regular run, with a final Z report if needed.
+ * With an {@code AdmissionControl}, the commands of every appended chunk are queued and executed in priority order instead.
+ *
+ * <p>Sample usage: {@code java BookingSystem --follow input.txt output.txt [pollMillis] [idleTimeoutMillis]}
+ */
+public class FollowProcessor {
+    private final String[] args;
+    private final BookingSystem system = new BookingSystem();
+    private AdmissionControl admission;
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private long offset = 0;
+    private boolean lastCommandIsZReport = false;
+    private boolean finished = false;
+
+    /**
+     * Creates a processor for the given files. The files must have been validated with {@code BusOperation.checkFiles}.
+     *
+     * @param args the input file path and the output file path.
+     */
+    public FollowProcessor(String[] args) {
+        this.args = args;
+    }
+
+    /**
+     * Follows an input file until it stays unchanged for the idle timeout, or until the program is interrupted when no
+     * timeout is given.
+     *
+     * @param args "--follow", the input file path, the output file path, and optionally the poll interval and the idle
+     *             timeout in milliseconds.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 5) {
+            System.err.println("ERROR: Follow mode works with the path to the input file, the path to the output file, and optionally the poll interval and the idle timeout in milliseconds. Sample usage can be as follows: \"java BookingSystem --follow input.txt output.txt 50 60000\". Program is going to terminate!");
+            System.exit(1);
+        }
+        String[] files = {args[1], args[2]};
+        long pollMillis = 100;
+        long idleMillis = 0;
+        try {
+            BusOperation.checkFiles(files);
+            if (args.length > 3) {
+                pollMillis = parseMillis(args[3]);
+            }
+            if (args.length > 4) {
+                idleMillis = parseMillis(args[4]);
+            }
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        FollowProcessor processor = new FollowProcessor(files);
+        try {
+            processor.system.useVoyageStore();
+            processor.setAdmissionControl(AdmissionControl.fromProperties());
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        String subscriptionPort = System.getProperty(SeatSubscriptionServer.PORT_PROPERTY);
+        if (subscriptionPort != null) {
+            try {
+                SeatSubscriptionServer server = processor.serveSubscriptions(Integer.parseInt(subscriptionPort));
+                System.out.println("SUBSCRIPTION_PORT " + server.getPort());
+                System.out.flush();
+            } catch (NumberFormatException | IOException e) {
+                System.err.println("ERROR: Seat subscriptions cannot be offered on port " + subscriptionPort + ". Program is going to terminate!");
+                System.exit(1);
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(processor::finish));
+        try {
+            processor.follow(pollMillis, idleMillis);
+        } catch (IOException e) {
+            System.err.println("ERROR: This program cannot read from \"" + files[0] + "\" anymore: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        processor.finish();
+    }
+
+    private static long parseMillis(String value) {
+        try {
+            long millis = Long.parseLong(value);
+            if (millis >= 0) {
+                return millis;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new UsageException("ERROR: " + value + " is not a non-negative integer, durations must be given in milliseconds! Program is going to terminate!");
+    }
+
+    /**
+     * Queues the commands of every appended chunk by class and executes them in priority order from now on, rejecting
+     * work that exceeds the limits of the admission control.
+     *
+     * @param admission the admission control to use.
+     */
+    public void setAdmissionControl(AdmissionControl admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Offers the seat changes of the voyages of this session to clients on a loopback port.
+     *
+     * @param port the port to listen on, or 0 to let the system choose one.
+     * @return the running server.
+     */
+    public SeatSubscriptionServer serveSubscriptions(int port) throws IOException {
+        SeatSubscriptions[] subscriptions = new SeatSubscriptions[1];
+        BookingSystem.runWith(system, () -> subscriptions[0] = BookingSystem.getSeatSubscriptions());
+        return new SeatSubscriptionServer(subscriptions[0], port);
+    }
+
+    /**
+     * Watches the directory of the input file and executes appended lines as soon as they show up.
+     * The file length is also checked every poll interval, since not every file system reports modifications.
+     *
+     * @param pollMillis the longest time to wait between two checks of the file.
+     * @param idleMillis stop after the file has not grown for this long, or never stop if it is 0.
+     */
+    public void follow(long pollMillis, long idleMillis) throws IOException, InterruptedException {
+        Path input = Paths.get(args[0]).toAbsolutePath();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            input.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
+            long lastActivity = System.currentTimeMillis();
+            while (true) {
+                if (poll() > 0) {
+                    lastActivity = System.currentTimeMillis();
+                } else {
+                    tick();
+                    if (idleMillis > 0 && System.currentTimeMillis() - lastActivity >= idleMillis) {
+                        return;
+                    }
+                }
+                WatchKey key = watcher.poll(Math.max(1, pollMillis), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the bytes appended to the input file since the last call and executes every complete line among them.
+     * An incomplete last line is kept until the rest of it arrives.
+     *
+     * @return the number of bytes read.
+     */
+    public synchronized int poll() throws IOException {
+        if (finished) {
+            return 0;
+        }
+        byte[] appended;
+        try (RandomAccessFile file = new RandomAccessFile(args[0], "r")) {
+            long length = file.length();
+            if (length < offset) {
+                System.err.println("ERROR: \"" + args[0] + "\" was truncated, only the commands appended from now on will be executed!");
+                offset = length;
+                partialLine.reset();
+                return 0;
+            }
+            if (length == offset) {
+                return 0;
+            }
+            appended = new byte[(int) Math.min(length - offset, Integer.MAX_VALUE - 8)];
+            file.seek(offset);
+            file.readFully(appended);
+            offset += appended.length;
+        }
+
+        int lineStart = 0;
+        for (int i = 0; i < appended.length; i++) {
+            if (appended[i] == '\n') {
+                partialLine.write(appended, lineStart, i - lineStart);
+                String line = partialLine.toString(StandardCharsets.UTF_8);
+                partialLine.reset();
+                executeLine(line);
+                lineStart = i + 1;
+            }
+        }
+        partialLine.write(appended, lineStart, appended.length - lineStart);
+        drainAdmitted();
+        FileOutput.flush(args[1]);
+        return appended.length;
+    }
+
+    /**
+     * Expires the holds and seals the departed voyages whose time has come while no command arrived, which is otherwise only
+     * done before the next command.
+     */
+    public synchronized void tick() {
+        if (finished) {
+            return;
+        }
+        BookingSystem.runWith(system, () -> {
+            HoldSeat.expireHolds(args);
+            Departures.sealDeparted(args);
+        });
+        FileOutput.flush(args[1]);
+    }
+
+    private void executeLine(String line) {
+        String command = line.trim();
+        if (command.isEmpty()) {
+            return;
+        }
+        if (admission != null) {
+            admission.offer(command, args);
+            return;
+        }
+        BookingSystem.runWith(system, () -> lastCommandIsZReport = execute(command));
+    }
+
+    /**
+     * Executes a command and reports a command that fails with an exception as an erroneous one, so that a single malformed
+     * line does not end the session.
+     *
+     * @param command the command line.
+     * @return true if the command was a valid Z report.
+     */
+    private boolean execute(String command) {
+        try {
+            return BusOperation.execute(command, args);
+        } catch (RuntimeException e) {
+            String[] parts = command.split("\\t");
+            FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"" + parts[0] + "\" command!", true, true);
+            return false;
+        }
+    }
+
+    /**
+     * Executes the commands the admission control has queued, if it is enabled.
+     */
+    private void drainAdmitted() {
+        if (admission == null) {
+            return;
+        }
+        BookingSystem.runWith(system, () -> {
+            Boolean zReport = admission.drain(this::execute, args);
+            if (zReport != null) {
+                lastCommandIsZReport = zReport;
+            }
+        });
+    }
+
+    /**
+     * Stops following and closes the output: an incomplete last line is executed as it is, and the final Z report is written
+     * if the last command was not a Z report. Calling it more than once has no further effect.
+     */
+    public synchronized void finish() {
+        if (finished) {
+            return;
+        }
+        if (partialLine.size() > 0) {
+            String line = partialLine.toString(StandardCharsets.UTF_8);
+            partialLine.reset();
+            executeLine(line);
+        }
+        drainAdmitted();
+        finished = true;
+        if (admission != null) {
+            System.err.print(admission.summary());
+        }
+        BookingSystem.runWith(system, () -> {
+            if (!lastCommandIsZReport) {
+                BusOperation.printFinalZReport(args);
+            }
+            RemoveLine.removeLastLine(args);
+            FileOutput.writeToFile(args[1], "----------------", true, false);
+            FileOutput.close(args[1]);
+            FileOutput.close(Departures.archivePath(args[1]));
+            BookingSystem.getSeatSubscriptions().notifyWatchers();
+            BookingSystem.getSeatSubscriptions().close();
+        });
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.Locale;
+/**
+ * The {@code HoldSeat} class handles seat holds within the booking system.
+ * A hold reserves empty seats for a limited time while a checkout is pending; it is either confirmed into a sale or released
+ * automatically when its time runs out, using the hold timer wheel of the booking system. Every hold gets an ID, which is
+ * reported when the seats are held and has to be given to confirm them.
+ */
+public class HoldSeat {
+    /**
+     * Holds one or more empty seats of a voyage for the given number of seconds.
+     *
+     * @param busId The ID of the bus whose seats are held.
+     * @param seatNumbers A string containing the seat numbers to hold, separated by underscores (e.g., "1_2_3").
+     * @param duration The duration of the hold in seconds.
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    public static void holder(int busId, String seatNumbers, String duration, String[] args) {
+        Bus bus = BookingSystem.getBusById(busId);
+        if (bus == null) {
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
+            return;
+        }
+        bus.beginUpdate();
+        try {
+            hold(bus, seatNumbers, duration, args);
+        } finally {
+            bus.endUpdate();
+        }
+    }
+
+    private static void hold(Bus bus, String seatNumbers, String duration, String[] args) {
+        int seconds;
+        try {
+            seconds = Integer.parseInt(duration);
+        } catch (NumberFormatException e) {
+            seconds = 0;
+        }
+        if (seconds <= 0) {
+            FileOutput.writeToFile(args[1], "ERROR: " + duration + " is not a positive integer, hold duration must be a positive integer!", true, true);
+            return;
+        }
+        int[] seats = parseSeats(bus, seatNumbers, args);
+        if (seats == null) {
+            return;
+        }
+        if (bus.hasWaitlist()) {
+            FileOutput.writeToFile(args[1], WaitlistTicket.reservedError(bus), true, true);
+            return;
+        }
+        for (int seatNumber : seats) {
+            if (bus.isSold(seatNumber - 1)) {
+                FileOutput.writeToFile(args[1], "ERROR: One or more seats already sold!", true, true);
+                return;
+            }
+            if (bus.isHeld(seatNumber - 1)) {
+                FileOutput.writeToFile(args[1], "ERROR: One or more seats are already held!", true, true);
+                return;
+            }
+        }
+
+        SeatHold hold = new SeatHold(bus.nextHoldId(), bus, seats, BookingSystem.currentTimeMillis() + seconds * 1000L);
+        for (int seatNumber : seats) {
+            bus.hold(seatNumber - 1, hold);
+        }
+        BookingSystem.getHoldTimers().schedule(hold.getExpiresAtMillis(), hold);
+
+        String heldSeats = String.format(Locale.US, "Seat %s of the Voyage %d from %s to %s was successfully held for %d seconds with hold ID %d.",
+                joinSeats(seats), bus.getId(), bus.getFrom(), bus.getTo(), seconds, hold.getId());
+        FileOutput.writeToFile(args[1], heldSeats, true, true);
+    }
+
+    /**
+     * Confirms held seats of a voyage into a sale. Every given seat must currently be held by the given hold.
+     *
+     * @param busId The ID of the bus whose held seats are sold.
+     * @param seatNumbers A string containing the seat numbers to sell, separated by underscores (e.g., "1_2_3").
+     * @param holdId The ID of the hold, as reported when the seats were held.
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    public static void confirmer(int busId, String seatNumbers, String holdId, String[] args) {
+        Bus bus = BookingSystem.getBusById(busId);
+        if (bus == null) {
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
+            return;
+        }
+        bus.beginUpdate();
+        try {
+            confirm(bus, seatNumbers, holdId, args);
+        } finally {
+            bus.endUpdate();
+        }
+    }
+
+    private static void confirm(Bus bus, String seatNumbers, String holdId, String[] args) {
+        int id;
+        try {
+            id = Integer.parseInt(holdId);
+        } catch (NumberFormatException e) {
+            id = 0;
+        }
+        if (id <= 0) {
+            FileOutput.writeToFile(args[1], "ERROR: " + holdId + " is not a positive integer, hold ID must be a positive integer!", true, true);
+            return;
+        }
+        int[] seats = parseSeats(bus, seatNumbers, args);
+        if (seats == null) {
+            return;
+        }
+        for (int seatNumber : seats) {
+            SeatHold hold = bus.getHold(seatNumber - 1);
+            if (hold == null || hold.getId() != id) {
+                FileOutput.writeToFile(args[1], "ERROR: One or more seats are not held by the hold with ID of " + id + "!", true, true);
+                return;
+            }
+        }
+
+        double totalCost = 0.0;
+        try {
+            for (int seatNumber : seats) {
+                bus.release(seatNumber - 1, bus.getHold(seatNumber - 1));
+                bus.sellSeat(seatNumber);
+                totalCost += SellTicket.seatPrice(bus, seatNumber);
+            }
+        } catch (Exception e) {
+            FileOutput.writeToFile(args[1], e.getMessage(), true, true);
+            return;
+        }
+        String soldSeats = String.format(Locale.US, "Seat %s of the Voyage %d from %s to %s was successfully sold for %.2f TL.",
+                joinSeats(seats), bus.getId(), bus.getFrom(), bus.getTo(), totalCost);
+        FileOutput.writeToFile(args[1], soldSeats, true, true);
+        // Without refunds, the sold seats can never become empty again for the waiting requests.
+        WaitlistTicket.promote(bus, args);
+    }
+
+    /**
+     * Releases the seats of every hold whose time has run out according to the clock of the booking system,
+     * and offers the released seats to the waitlist of their voyage.
+     *
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    public static void expireHolds(String[] args) {
+        BookingSystem.getHoldTimers().advance(BookingSystem.currentTimeMillis(), hold -> {
+            Bus bus = hold.getBus();
+            bus.beginUpdate();
+            try {
+                if (hold.release() > 0) {
+                    WaitlistTicket.promote(bus, args);
+                }
+            } finally {
+                bus.endUpdate();
+            }
+        });
+    }
+
+    /**
+     * Parses and validates a list of seat numbers.
+     *
+     * @param bus The bus the seats belong to.
+     * @param seatNumbers A string containing seat numbers separated by underscores.
+     * @param args Command-line arguments for output.
+     * @return The seat numbers, or null if one of them is invalid, in which case the error has already been written.
+     */
+    private static int[] parseSeats(Bus bus, String seatNumbers, String[] args) {
+        String[] tokens = seatNumbers.split("_");
+        int[] seats = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            try {
+                seats[i] = Integer.parseInt(tokens[i]);
+            } catch (NumberFormatException e) {
+                FileOutput.writeToFile(args[1], "ERROR: " + tokens[i] + " is not a valid number, seat number must be a positive integer!", true, true);
+                return null;
+            }
+            if (seats[i] <= 0) {
+                FileOutput.writeToFile(args[1], "ERROR: " + seats[i] + " is not a positive integer, seat number must be a positive integer!", true, true);
+                return null;
+            }
+            if (seats[i] > bus.getCapacity()) {
+                FileOutput.writeToFile(args[1], "ERROR: There is no such a seat!", true, true);
+                return null;
+            }
+        }
+        return seats;
+    }
+
+    private static String joinSeats(int[] seats) {
+        StringBuilder joined = new StringBuilder();
+        for (int seatNumber : seats) {
+            if (joined.length() > 0) {
+                joined.append("-");
+            }
+            joined.append(seatNumber);
+        }
+        return joined.toString();
+    }
+}
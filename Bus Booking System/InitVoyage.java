@@ -8,9 +8,10 @@ public class InitVoyage {
      * This method interprets the bus type from the command line input and creates the appropriate bus object.
      *
      * @param line The line of data containing voyage initialization parameters.
+     * @param departure The departure time of the voyage, or null if it has none.
      * @param args Command-line arguments where args[1] may be used to determine output paths for logs or errors.
      */
-    public static void busPlacer(String line,String[] args) {
+    public static void busPlacer(String line, String departure, String[] args) {
         String[] parts = line.split("\\t");
         Bus newBus = null;
         switch (parts[1]) {
@@ -27,9 +28,18 @@ public class InitVoyage {
             case "Premium":
                 newBus = PremiumBus.createPremiumbus(line);
 
+                break;
+            default:
+                SeatLayout layout = SeatLayout.forType(parts[1]);
+                if (layout != null) {
+                    newBus = CoachBus.createCoachBus(line, layout);
+                }
                 break;
         }
         if (newBus != null) {
+            if (departure != null) {
+                newBus.setDeparture(Departures.parse(departure));
+            }
             BookingSystem.addBus(newBus);
         }
     }
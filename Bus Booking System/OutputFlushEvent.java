@@ -0,0 +1,29 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code OutputFlushEvent} class is a Java Flight Recorder event that is recorded whenever {@code FileOutput} writes its
+ * buffer to an output file, so that slow commands can be matched with the I/O that happened during them.
+ */
+@Name("busbooking.OutputFlush")
+@Label("Output Flush")
+@Category({"Bus Booking", "Output"})
+@Description("A buffer of encoded output written to an output file")
+@StackTrace(false)
+public class OutputFlushEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Compressed")
+    @Description("True if the bytes went through a gzip stream")
+    boolean compressed;
+}
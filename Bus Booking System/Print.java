@@ -1,6 +1,5 @@
-import java.util.Comparator;
-import java.util.List;
 import java.util.Locale;
+import jdk.jfr.FlightRecorder;
 /**
  * The {@code Print} class provides utilities for formatting and printing information related to bus operations in the booking system.
  * It handles the output of detailed information about voyages, tickets, and financial reports to ensure clear communication and record-keeping.
@@ -10,11 +9,12 @@ public class Print {
      * Prints detailed information about the initialization of a voyage command, including bus type and voyage details.
      * This method formats the output based on the type of bus and the specifics of the voyage command.
      *
-     * @param parts Array of strings containing the details of the voyage initialization command.
-     * @param args  Command-line arguments specifying paths for output files.
+     * @param parts     Array of strings containing the details of the voyage initialization command.
+     * @param departure The departure time given in the command, or null if it has none.
+     * @param args      Command-line arguments specifying paths for output files.
      */
 
-    public static void printInitVoyageCommand(String[] parts,String[] args) {
+    public static void printInitVoyageCommand(String[] parts, String departure, String[] args) {
         String commandInfo = "";;
         if (parts.length > 8) {
             // Premium voyage
@@ -29,6 +29,9 @@ public class Print {
             commandInfo = String.format(Locale.US, "COMMAND: INIT_VOYAGE\t%s\t%s\t%s\t%s\t%s\t%s",
                     parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
         }
+        if (departure != null) {
+            commandInfo += "\t" + Departures.DEPARTURE_PREFIX + departure;
+        }
         FileOutput.writeToFile(args[1], commandInfo, true, true);
 
 
@@ -41,6 +44,11 @@ public class Print {
      * @param args  Command-line arguments for specifying output file paths.
      */
     public static void printInitVoyageInfo(String[] parts,String[] args) {
+        SeatLayout layout = SeatLayout.forType(parts[1]);
+        if (layout != null && !layout.isBuiltIn()) {
+            printCoachVoyageInfo(layout, parts, args);
+            return;
+        }
         double price = Double.parseDouble(parts[6]);
         int seats = Integer.parseInt(parts[5]);
         String voyageInfo;
@@ -62,30 +70,72 @@ public class Print {
         }
 
     }
+    /**
+     * Prints the details of a voyage of a bus type that was read from the layouts file.
+     *
+     * @param layout The layout of the bus type.
+     * @param parts  Array of strings containing the voyage details.
+     * @param args   Command-line arguments for specifying output file paths.
+     */
+    private static void printCoachVoyageInfo(SeatLayout layout, String[] parts, String[] args) {
+        double price = Double.parseDouble(parts[6]);
+        int rows = Integer.parseInt(parts[5]);
+        StringBuilder voyageInfo = new StringBuilder(String.format(Locale.US, "Voyage %s was initialized as a %s (%s) voyage from %s to %s with %.2f TL priced %d regular seats",
+                parts[2], layout.getName().toLowerCase(), layout.getArrangement(), parts[3], parts[4], price,
+                rows * (layout.getSeatsPerRow() - layout.getPremiumSeatsPerRow())));
+        if (layout.hasPremiumSeats()) {
+            double premiumPrice = price * (100 + Double.parseDouble(parts[layout.isRefundable() ? 8 : 7])) / 100;
+            voyageInfo.append(String.format(Locale.US, " and %.2f TL priced %d premium seats", premiumPrice, rows * layout.getPremiumSeatsPerRow()));
+        }
+        if (layout.isRefundable()) {
+            voyageInfo.append(String.format(Locale.US, ". Note that refunds will be %s%% less than the paid amount.", parts[7]));
+        } else {
+            voyageInfo.append(". Note that ").append(layout.getName().toLowerCase()).append(" tickets are not refundable.");
+        }
+        FileOutput.writeToFile(args[1], voyageInfo.toString(), true, true);
+    }
     /**
      * Generates and prints a financial Z report for the booking system.
      * This method collates financial data from all voyages and formats it into a comprehensive Z report.
+     * The voyages are read from a snapshot, so the report shows all of them at the same version even while tickets are sold.
      *
      * @param args Command-line arguments that may specify output details or file paths.
      */
     public static void printZReport(String[] args) {
-        List<Bus> buses = BookingSystem.getAllBuses();
-        buses.sort(Comparator.comparingInt(Bus::getId));
-        String revenue = "";
-        if (buses.isEmpty()){
+        ReportEvent event = FlightRecorder.isInitialized() ? new ReportEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        int voyages = 0;
+        try (BookingSystem.Snapshot snapshot = BookingSystem.openSnapshot()) {
+            for (VoyageSnapshot voyage : snapshot) {
+                printZReportEntry(voyage, args);
+                voyages++;
+            }
+        }
+        if (voyages == 0){
             FileOutput.writeToFile(args[1], "No Voyages Available!", true, true);
             FileOutput.writeToFile(args[1], "----------------", true, true);
-            return;
         }
-        for (Bus bus : buses) {
-            FileOutput.writeToFile(args[1], "Voyage " + bus.getId(), true, true);
-            FileOutput.writeToFile(args[1], bus.getFrom() + "-" + bus.getTo(), true, true);
-            FileOutput.writeToFile(args[1], bus.visualizeSeats(), true, false);
-            revenue = "Revenue: " + String.format(Locale.US, "%.2f", bus.getRevenue());
-            FileOutput.writeToFile(args[1], revenue, true, true);
-            FileOutput.writeToFile(args[1], "----------------", true, true);
+        if (event != null && event.shouldCommit()) {
+            event.report = "Z_REPORT";
+            event.voyages = voyages;
+            event.commit();
         }
     }
+    /**
+     * Prints the part of the Z report that belongs to a single voyage, closed by a separator line.
+     *
+     * @param voyage The snapshot of the voyage that is printed.
+     * @param args   Command-line arguments that may specify output details or file paths.
+     */
+    public static void printZReportEntry(VoyageSnapshot voyage, String[] args) {
+        FileOutput.writeBytes(args[1], voyage.getBus().getReportHeader());
+        FileOutput.writeToFile(args[1], voyage.visualizeSeats(), true, false);
+        String revenue = "Revenue: " + String.format(Locale.US, "%.2f", voyage.getRevenue());
+        FileOutput.writeToFile(args[1], revenue, true, true);
+        FileOutput.writeToFile(args[1], "----------------", true, true);
+    }
     /**
      * Handles printing of voyage details based on a specific bus ID.
      * This method fetches the relevant voyage details from the system and formats them for output.
@@ -100,15 +150,24 @@ public class Print {
             FileOutput.writeToFile(args[1], "ERROR: " + busId + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
             return;
         } else if (bus == null) {
-            FileOutput.writeToFile(args[1], "ERROR: There is no voyage with ID of " + busId + "!", true, true);
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
             return;
         }
 
-        FileOutput.writeToFile(args[1], "Voyage " + bus.getId(), true, true);
-        FileOutput.writeToFile(args[1], bus.getFrom() + "-" + bus.getTo(), true, true);
-        FileOutput.writeToFile(args[1], bus.visualizeSeats(), true, false);
-        revenue= "Revenue: " + String.format(Locale.US, "%.2f", bus.getRevenue());
+        ReportEvent event = FlightRecorder.isInitialized() ? new ReportEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        VoyageSnapshot voyage = bus.snapshot();
+        FileOutput.writeBytes(args[1], bus.getReportHeader());
+        FileOutput.writeToFile(args[1], voyage.visualizeSeats(), true, false);
+        revenue= "Revenue: " + String.format(Locale.US, "%.2f", voyage.getRevenue());
         FileOutput.writeToFile(args[1], revenue, true, true);
+        if (event != null && event.shouldCommit()) {
+            event.report = "PRINT_VOYAGE";
+            event.voyages = 1;
+            event.commit();
+        }
     }
 
 }
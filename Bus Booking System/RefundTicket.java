@@ -1,3 +1,4 @@
+import java.util.List;
 import java.util.Locale;
 /**
  * The {@code RefundTicket} class is responsible for processing ticket refunds within the booking system.
@@ -30,11 +31,11 @@ public class RefundTicket {
             }
 
             int index = seatNumber - 1;
-            if (index >= bus.getSeats().length ) {
+            if (index >= bus.getCapacity() ) {
                 FileOutput.writeToFile(args[1], "ERROR: There is no such a seat!", true, true);
                 return false;
             }
-            if (index >= bus.getSeats().length || !bus.getSeats()[index]) {
+            if (index >= bus.getCapacity() || !bus.isSold(index)) {
                 FileOutput.writeToFile(args[1], "ERROR: One or more seats are already empty!", true, true);
                 return false;
             }
@@ -52,60 +53,61 @@ public class RefundTicket {
     public static void refunder(int busId, String seatNumbers, String[] args) {
         Bus bus = BookingSystem.getBusById(busId);
         if (bus == null) {
-            FileOutput.writeToFile(args[1], "ERROR: There is no voyage with ID of " + busId +"!", true, true);
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
             return;
         }
+        bus.beginUpdate();
+        try {
+            refund(bus, seatNumbers, args);
+        } finally {
+            bus.endUpdate();
+        }
+    }
+
+    private static void refund(Bus bus, String seatNumbers, String[] args) {
         String[] seatsToRefund = seatNumbers.split("_");
+        if (SeatRange.hasRanges(seatsToRefund)) {
+            refundRanges(bus, seatsToRefund, args);
+            return;
+        }
         if (!allSeatsRefundable(bus, seatsToRefund, args)) {
             return;
         }
+        if (!bus.getLayout().isRefundable()) {
+            FileOutput.writeToFile(args[1], "ERROR: " + bus.getLayout().getName() + " tickets are not refundable!", true, true);
+            return;
+        }
         StringBuilder refundedSeats = new StringBuilder();
-        double totalRefundAmount = 0.0;
-        boolean first = true;
+        int premiumSeats = 0;
 
         for (String seat : seatsToRefund) {
-            int seatNumber = 0;
-            try {
-                seatNumber = Integer.parseInt(seat);
-                if (bus instanceof Minibus) {
-                    FileOutput.writeToFile(args[1], "ERROR: Minibus tickets are not refundable!", true, true);
-                    break;
-                }
-
-                bus.refundSeat(seatNumber);  // This will throw an exception if the seat cannot be refunded
-
+            int seatNumber = Integer.parseInt(seat);
+            if (bus.isPremiumSeat(seatNumber - 1)) {
+                premiumSeats++;
+            }
+            bus.refundSeat(seatNumber);
 
-                double seatPrice = bus.getPrice();
-                double refundAmount = seatPrice;
+            if (refundedSeats.length() == 0) {
+                refundedSeats.append(seatNumber);
+            } else {
+                refundedSeats.append("-").append(seatNumber);
+            }
+        }
 
-                if (bus instanceof PremiumBus) {
-                    if ((seatNumber - 1) % 3 == 0) {
-                        seatPrice = (((PremiumBus) bus).getPremiumFee() + 100) * bus.getPrice() / 100;
-                    }
-                    refundAmount = seatPrice - (seatPrice * ((PremiumBus) bus).getRefundCut() / 100);
-                } else if (bus instanceof StandardBus) {
-                    double refundCut = ((StandardBus) bus).getRefundCut();
-                    refundAmount = seatPrice - (seatPrice * refundCut / 100);
-                }
+        double regularRefund = bus.getRefund(SeatLayout.REGULAR_SEAT);
+        double premiumRefund = bus.getRefund(SeatLayout.PREMIUM_SEAT);
 
-                bus.addRevenue(-refundAmount);
+        // The refund of a seat only depends on its class, so the total is computed once per class instead of once per seat.
+        // Fractional amounts are applied seat by seat in request order instead, which keeps the rounding of the revenue unchanged.
+        double totalRefundAmount = 0.0;
+        if (Bus.isExactAmount(regularRefund) && Bus.isExactAmount(premiumRefund) && Bus.isExactAmount(bus.getRevenue())) {
+            totalRefundAmount = premiumSeats * premiumRefund + (seatsToRefund.length - premiumSeats) * regularRefund;
+            bus.deductRefund(totalRefundAmount);
+        } else {
+            for (String seat : seatsToRefund) {
+                double refundAmount = bus.getRefund(bus.getSeatClass(Integer.parseInt(seat) - 1));
+                bus.deductRefund(refundAmount);
                 totalRefundAmount += refundAmount;
-
-
-                if (first) {
-                    refundedSeats.append(seatNumber);
-                    first = false;
-                } else {
-                    refundedSeats.append("-").append(seatNumber);
-                }
-            } catch (NumberFormatException e) {
-                FileOutput.writeToFile(args[1], "Error: Invalid seat number format - " + seat, true, true);
-                return;
-
-            } catch (Exception e) {
-                FileOutput.writeToFile(args[1], e.getMessage() , true, true);
-                return;
-
             }
         }
 
@@ -114,6 +116,67 @@ public class RefundTicket {
                     refundedSeats, bus.getId(), bus.getFrom(), bus.getTo(), totalRefundAmount);
             FileOutput.writeToFile(args[1], refundedSeatSummary, true, true);
         }
+        WaitlistTicket.promote(bus, args);
     }
 
+    /**
+     * Refunds the seats of a seat list with ranges, such as "1-40" or "row:3-7". Every range is checked in one pass over its
+     * seats before any seat is refunded, then emptied as one block, and the refund is computed from the number of premium
+     * seats in the ranges.
+     *
+     * @param bus The bus from which the seats are being refunded.
+     * @param tokens The underscore separated tokens of the seat list.
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    private static void refundRanges(Bus bus, String[] tokens, String[] args) {
+        List<SeatRange> ranges;
+        try {
+            ranges = SeatRange.parse(tokens, bus);
+        } catch (IllegalArgumentException e) {
+            FileOutput.writeToFile(args[1], e.getMessage(), true, true);
+            return;
+        }
+        for (SeatRange range : ranges) {
+            for (int index = range.getFirst(); index < range.getEnd(); index++) {
+                if (!bus.isSold(index)) {
+                    FileOutput.writeToFile(args[1], "ERROR: One or more seats are already empty!", true, true);
+                    return;
+                }
+            }
+        }
+        if (!bus.getLayout().isRefundable()) {
+            FileOutput.writeToFile(args[1], "ERROR: " + bus.getLayout().getName() + " tickets are not refundable!", true, true);
+            return;
+        }
+
+        StringBuilder refundedSeats = new StringBuilder();
+        int seats = 0;
+        int premiumSeats = 0;
+        for (SeatRange range : ranges) {
+            premiumSeats += bus.refundRange(range);
+            seats += range.getEnd() - range.getFirst();
+            range.appendSeatNumbers(refundedSeats);
+        }
+
+        double regularRefund = bus.getRefund(SeatLayout.REGULAR_SEAT);
+        double premiumRefund = bus.getRefund(SeatLayout.PREMIUM_SEAT);
+        double totalRefundAmount = 0.0;
+        if (Bus.isExactAmount(regularRefund) && Bus.isExactAmount(premiumRefund) && Bus.isExactAmount(bus.getRevenue())) {
+            totalRefundAmount = premiumSeats * premiumRefund + (seats - premiumSeats) * regularRefund;
+            bus.deductRefund(totalRefundAmount);
+        } else {
+            for (SeatRange range : ranges) {
+                for (int index = range.getFirst(); index < range.getEnd(); index++) {
+                    double refundAmount = bus.getRefund(bus.getSeatClass(index));
+                    bus.deductRefund(refundAmount);
+                    totalRefundAmount += refundAmount;
+                }
+            }
+        }
+
+        String refundedSeatSummary = String.format(Locale.US, "Seat %s of the Voyage %d from %s to %s was successfully refunded for %.2f TL.",
+                refundedSeats, bus.getId(), bus.getFrom(), bus.getTo(), totalRefundAmount);
+        FileOutput.writeToFile(args[1], refundedSeatSummary, true, true);
+        WaitlistTicket.promote(bus, args);
+    }
 }
@@ -14,7 +14,7 @@ public class RemoveLine {
      * @param args Command-line arguments where args[1] should contain the path of the file to be modified.
      */
     public static void removeLastLine(String[] args)  {
-
+        FileOutput.close(args[1]);
         String[] data = FileInput.readFile(args[1], true, true);
 
         List<String> lines = new ArrayList<>(Arrays.asList(data));
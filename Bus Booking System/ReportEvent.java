@@ -0,0 +1,24 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code ReportEvent} class is a Java Flight Recorder event that is recorded for every generated report, such as a Z report,
+ * a printed voyage or an analytics query, with the number of voyages it covered.
+ */
+@Name("busbooking.Report")
+@Label("Report")
+@Category({"Bus Booking", "Reports"})
+@Description("Generation of a report")
+@StackTrace(false)
+public class ReportEvent extends Event {
+    @Label("Report")
+    String report;
+
+    @Label("Voyages")
+    @Description("The number of voyages the report covered")
+    int voyages;
+}
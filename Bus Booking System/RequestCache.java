@@ -0,0 +1,128 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code RequestCache} class remembers the responses of recently executed commands that carried a request ID, so that a
+ * retried command is answered with its original response instead of being executed a second time.
+ * The cache holds at most a fixed number of responses and a fixed number of response bytes; when either limit is exceeded the
+ * least recently used responses are evicted, so memory use stays bounded under any load.
+ *
+ * <p>A request is claimed before it is executed, which remembers it as in flight under the same lock that looks it up. A copy
+ * of the request that arrives while the first one is still executing therefore waits for its output instead of executing it
+ * a second time. Requests in flight are never evicted.
+ */
+public class RequestCache {
+    /**
+     * The response of a command, together with the command it belongs to.
+     */
+    public static final class Response {
+        private final String command;
+        private byte[] output;
+
+        Response(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * Returns the output of the command, waiting for it if the command is still in flight.
+         *
+         * @return the output the command wrote
+         */
+        public synchronized byte[] getOutput() {
+            boolean interrupted = false;
+            while (output == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return output;
+        }
+
+        private synchronized boolean isInFlight() {
+            return output == null;
+        }
+
+        private synchronized void complete(byte[] output) {
+            this.output = output;
+            notifyAll();
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Response> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * Creates a cache with the given limits.
+     *
+     * @param maxEntries the largest number of responses to keep
+     * @param maxBytes   the largest total size of the kept responses, in bytes
+     */
+    public RequestCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the response of a request and marks it as recently used, or claims the request for the calling thread if it is
+     * unknown. The caller of a claimed request has to execute it and {@link #complete(String, byte[]) complete} it.
+     *
+     * @param requestId the request ID
+     * @param command   the command that carries the request ID
+     * @return the response of an earlier copy of the request, whose output may still be in flight, or null if the request
+     *         has been claimed
+     */
+    public synchronized Response claim(String requestId, String command) {
+        Response response = responses.get(requestId);
+        if (response == null) {
+            response = new Response(command);
+            responses.put(requestId, response);
+            bytes += size(requestId, response);
+            return null;
+        }
+        return response;
+    }
+
+    /**
+     * Remembers the output of a claimed request, wakes the copies of the request that wait for it, and evicts the least
+     * recently used responses if a limit is exceeded.
+     *
+     * @param requestId the request ID
+     * @param output    the output the command wrote
+     */
+    public synchronized void complete(String requestId, byte[] output) {
+        Response response = responses.get(requestId);
+        response.complete(output);
+        bytes += output.length;
+        Iterator<Map.Entry<String, Response>> eldest = responses.entrySet().iterator();
+        while ((responses.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            Map.Entry<String, Response> entry = eldest.next();
+            if (!entry.getValue().isInFlight()) {
+                bytes -= size(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return responses.size();
+    }
+
+    /**
+     * Estimates the memory held by a response, counting two bytes per character of the ID and the command.
+     */
+    private static long size(String requestId, Response response) {
+        return 2L * (requestId.length() + response.command.length()) + (response.isInFlight() ? 0 : response.output.length);
+    }
+}
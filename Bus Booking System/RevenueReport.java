@@ -0,0 +1,89 @@
+import java.util.Locale;
+import java.util.Map;
+import jdk.jfr.FlightRecorder;
+/**
+ * The {@code RevenueReport} class handles the {@code REVENUE_REPORT} command, which prints the gross sales, refunds,
+ * cancellation reversals and net revenue of all voyages, followed by the same figures per bus type and per route.
+ * {@code REVENUE_REPORT TYPE} and {@code REVENUE_REPORT ROUTE} only print one of the two breakdowns.
+ * The figures come from the {@code RevenueRollup} of the booking system, so the report never has to visit every voyage.
+ */
+public class RevenueReport {
+    /**
+     * Validates a REVENUE_REPORT command without executing it.
+     *
+     * @param parts the fields of the command
+     * @return the error message to write, or null if the command is valid
+     */
+    public static String validate(String[] parts) {
+        if (parts.length == 1 || (parts.length == 2 && (parts[1].equals("TYPE") || parts[1].equals("ROUTE")))) {
+            return null;
+        }
+        return "ERROR: Erroneous usage of \"REVENUE_REPORT\" command!";
+    }
+
+    /**
+     * Executes a valid or invalid REVENUE_REPORT command on the booking system of the calling thread and writes its result.
+     *
+     * @param parts the fields of the command
+     * @param args  Command-line arguments used for specifying output paths for logging.
+     */
+    public static void query(String[] parts, String[] args) {
+        String error = validate(parts);
+        if (error != null) {
+            FileOutput.writeToFile(args[1], error, true, true);
+            return;
+        }
+        ReportEvent event = FlightRecorder.isInitialized() ? new ReportEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        RevenueRollup rollup = BookingSystem.getRevenueRollup();
+        Map<String, RevenueRollup.Totals> byType = rollup.byType();
+        Map<String, RevenueRollup.Totals> byRoute = rollup.byRoute();
+        print(parts, byType, byRoute, args);
+        if (event != null && event.shouldCommit()) {
+            event.report = parts[0];
+            event.voyages = byRoute.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the result of a valid REVENUE_REPORT command.
+     *
+     * @param parts   the fields of the command
+     * @param byType  the revenue of every bus type, ordered by name
+     * @param byRoute the revenue of every route, ordered by route
+     * @param args    Command-line arguments used for specifying output paths for logging.
+     */
+    public static void print(String[] parts, Map<String, RevenueRollup.Totals> byType, Map<String, RevenueRollup.Totals> byRoute, String[] args) {
+        RevenueRollup.Totals total = new RevenueRollup.Totals();
+        for (RevenueRollup.Totals totals : byType.values()) {
+            total.add(totals.getSales(), totals.getRefunds(), totals.getCancellations());
+        }
+        StringBuilder report = new StringBuilder("Revenue report:\n");
+        appendTotals(report, "All voyages", total);
+        if (parts.length == 1 || parts[1].equals("TYPE")) {
+            appendSection(report, "By bus type:", byType);
+        }
+        if (parts.length == 1 || parts[1].equals("ROUTE")) {
+            appendSection(report, "By route:", byRoute);
+        }
+        FileOutput.writeToFile(args[1], report.toString(), true, false);
+    }
+
+    private static void appendSection(StringBuilder report, String title, Map<String, RevenueRollup.Totals> groups) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        report.append(title).append('\n');
+        for (Map.Entry<String, RevenueRollup.Totals> group : groups.entrySet()) {
+            appendTotals(report, group.getKey(), group.getValue());
+        }
+    }
+
+    private static void appendTotals(StringBuilder report, String group, RevenueRollup.Totals totals) {
+        report.append(String.format(Locale.US, "%s: %.2f TL sales, %.2f TL refunds, %.2f TL cancellations, %.2f TL net.",
+                group, totals.getSales(), totals.getRefunds(), totals.getCancellations(), totals.getNet())).append('\n');
+    }
+}
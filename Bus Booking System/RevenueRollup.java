@@ -0,0 +1,124 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code RevenueRollup} class keeps the revenue of a booking system summed up by bus type and by route, split into gross
+ * sales, refunds and the reversals of cancelled voyages. The sums are updated with every change of the revenue of a voyage,
+ * so a revenue report only visits the groups, never the voyages. Cancelled and departed voyages stay part of the sums.
+ */
+public class RevenueRollup {
+    public static final int SALES = 0;
+    public static final int REFUNDS = 1;
+    public static final int CANCELLATIONS = 2;
+
+    /**
+     * The revenue of a group of voyages.
+     */
+    public static final class Totals {
+        private double sales;
+        private double refunds;
+        private double cancellations;
+
+        public Totals() {
+        }
+
+        public Totals(double sales, double refunds, double cancellations) {
+            this.sales = sales;
+            this.refunds = refunds;
+            this.cancellations = cancellations;
+        }
+
+        public double getSales() {
+            return sales;
+        }
+
+        public double getRefunds() {
+            return refunds;
+        }
+
+        public double getCancellations() {
+            return cancellations;
+        }
+
+        /**
+         * Returns the revenue that remains after refunds and cancellations.
+         *
+         * @return the net revenue
+         */
+        public double getNet() {
+            return sales - refunds - cancellations;
+        }
+
+        void add(double sales, double refunds, double cancellations) {
+            this.sales += sales;
+            this.refunds += refunds;
+            this.cancellations += cancellations;
+        }
+
+        private Totals copy() {
+            return new Totals(sales, refunds, cancellations);
+        }
+    }
+
+    private final Map<String, Totals> byType = new TreeMap<>();
+    private final Map<String, Totals> byRoute = new TreeMap<>();
+
+    /**
+     * Records a change of the revenue of a voyage.
+     *
+     * @param bus    the voyage
+     * @param kind   {@link #SALES}, {@link #REFUNDS} or {@link #CANCELLATIONS}
+     * @param amount the amount sold, refunded or reversed, which is not negative
+     */
+    public synchronized void record(Bus bus, int kind, double amount) {
+        double sales = kind == SALES ? amount : 0;
+        double refunds = kind == REFUNDS ? amount : 0;
+        double cancellations = kind == CANCELLATIONS ? amount : 0;
+        add(bus.getLayout().getName(), bus.getRoute(), sales, refunds, cancellations);
+    }
+
+    /**
+     * Adds amounts to a bus type and to a route, for example to merge the rollups of several booking systems.
+     *
+     * @param type          the name of the bus type, or null to leave the bus types unchanged
+     * @param route         the route as "From-To", or null to leave the routes unchanged
+     * @param sales         the gross sales to add
+     * @param refunds       the refunds to add
+     * @param cancellations the cancellation reversals to add
+     */
+    public synchronized void add(String type, String route, double sales, double refunds, double cancellations) {
+        if (type != null) {
+            byType.computeIfAbsent(type, name -> new Totals()).add(sales, refunds, cancellations);
+        }
+        if (route != null) {
+            byRoute.computeIfAbsent(route, name -> new Totals()).add(sales, refunds, cancellations);
+        }
+    }
+
+    /**
+     * Returns the revenue of every bus type that has had a sale.
+     *
+     * @return a copy of the totals, ordered by the name of the bus type
+     */
+    public synchronized Map<String, Totals> byType() {
+        return copy(byType);
+    }
+
+    /**
+     * Returns the revenue of every route that has had a sale.
+     *
+     * @return a copy of the totals, ordered by route
+     */
+    public synchronized Map<String, Totals> byRoute() {
+        return copy(byRoute);
+    }
+
+    private static Map<String, Totals> copy(Map<String, Totals> groups) {
+        Map<String, Totals> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Totals> group : groups.entrySet()) {
+            copy.put(group.getKey(), group.getValue().copy());
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code SaleCombiner} class sells the tickets of a hot voyage by flat combining. When several threads sell tickets of the
+ * same voyage at once, the ones that find the voyage busy queue their sales instead of waiting for the update lock in turn.
+ * Whichever thread holds the lock next applies the whole queue against the seat state in arrival order and publishes the
+ * batch as one voyage version, so the lock changes hands once per batch instead of once per sale. Every sale still gets its
+ * own result line, which its own thread writes.
+ *
+ * <p>The combiner of a voyage is only created once its lock is found taken by a sale, so voyages that are never contended keep
+ * selling under the lock alone.
+ */
+public class SaleCombiner {
+    /**
+     * The number of times a queued sale yields before it parks.
+     */
+    private static final int YIELDS = 64;
+
+    /**
+     * The longest time a queued sale waits for a wake-up before it tries to take the lock again anyway.
+     */
+    private static final long PARK_NANOS = 1_000_000;
+
+    /**
+     * A queued sale and, once it has been applied, its result.
+     */
+    private static final class Sale {
+        private final String seatNumbers;
+        private final Thread seller = Thread.currentThread();
+        private String result;
+        private volatile boolean done = false;
+
+        Sale(String seatNumbers) {
+            this.seatNumbers = seatNumbers;
+        }
+    }
+
+    private final Bus bus;
+    private final ConcurrentLinkedQueue<Sale> pending = new ConcurrentLinkedQueue<>();
+    private long combinedSales = 0;
+
+    SaleCombiner(Bus bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Queues a sale and waits until it has been applied, by this thread or by whichever thread combines the queue.
+     *
+     * @param seatNumbers the seat numbers to sell, separated by underscores
+     * @return the result line of the sale
+     */
+    String sell(String seatNumbers) {
+        Sale sale = new Sale(seatNumbers);
+        pending.add(sale);
+        int attempts = 0;
+        while (!sale.done) {
+            if (bus.tryBeginUpdate()) {
+                try {
+                    combine();
+                } finally {
+                    bus.endUpdate();
+                }
+            } else if (++attempts < YIELDS) {
+                // Lock holds are short, so giving up the processor for a moment is cheaper than parking and being unparked.
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+        return sale.result;
+    }
+
+    /**
+     * Wakes the oldest queued sale after the update lock of the voyage has been released, so that its thread combines the
+     * queue next.
+     */
+    void handOff() {
+        Sale next = pending.peek();
+        if (next != null) {
+            LockSupport.unpark(next.seller);
+        }
+    }
+
+    /**
+     * Returns the number of sales that have been applied by another thread than the one that made them.
+     *
+     * @return the number of combined sales
+     */
+    long getCombinedSales() {
+        bus.beginUpdate();
+        try {
+            return combinedSales;
+        } finally {
+            bus.endUpdate();
+        }
+    }
+
+    /**
+     * Applies every queued sale. The caller must hold the update lock of the voyage.
+     */
+    void combine() {
+        for (Sale sale = pending.poll(); sale != null; sale = pending.poll()) {
+            try {
+                sale.result = SellTicket.sell(bus, sale.seatNumbers);
+                if (sale.seller != Thread.currentThread()) {
+                    combinedSales++;
+                }
+            } finally {
+                sale.done = true;
+                LockSupport.unpark(sale.seller);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * The {@code SeatHold} class represents seats of a voyage that are held while a checkout is pending.
+ * A hold either gets confirmed into a sale or expires, at which point its seats become available again.
+ * Every hold of a voyage has its own ID, which has to be given to confirm it, so one checkout cannot confirm the seats
+ * another checkout holds.
+ */
+public class SeatHold {
+    private final int id;
+    private final Bus bus;
+    private final int[] seatNumbers;
+    private final long expiresAtMillis;
+
+    /**
+     * Constructs a new hold over the given seats.
+     *
+     * @param id              the ID of the hold, unique within its voyage
+     * @param bus             the bus whose seats are held
+     * @param seatNumbers     the held seat numbers
+     * @param expiresAtMillis the time at which the hold expires, in milliseconds
+     */
+    public SeatHold(int id, Bus bus, int[] seatNumbers, long expiresAtMillis) {
+        this.id = id;
+        this.bus = bus;
+        this.seatNumbers = seatNumbers;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Bus getBus() {
+        return bus;
+    }
+
+    public int[] getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * Releases the seats of this hold that are still held by it. Seats that were confirmed in the meantime are left alone.
+     *
+     * @return the number of released seats
+     */
+    public int release() {
+        int released = 0;
+        for (int seatNumber : seatNumbers) {
+            if (bus.release(seatNumber - 1, this)) {
+                released++;
+            }
+        }
+        return released;
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code SeatLayout} class describes the seating of a bus type: the seats of a row, where the aisles are, which seats
+ * belong to the premium class and whether tickets can be refunded. A row is written as a pattern of space separated tokens,
+ * "R" for a regular seat, "P" for a premium seat and "|" for an aisle, so the standard bus is "R R | R R".
+ *
+ * <p>A layout is compiled into a table that gives the class of every seat of a bus with a given number of rows, and into a
+ * row template that seat symbols are copied into, so selling, refunding and rendering look seats up instead of computing
+ * their position. Tables are shared by all voyages with the same layout and number of rows.
+ *
+ * <p>Besides the standard, premium and minibus layouts, further bus types can be described in a tab separated file whose
+ * path is given by the system property {@value #LAYOUTS_PROPERTY}. Every line holds the name of the type, its row pattern
+ * and either "refundable" or "nonrefundable"; empty lines and lines starting with "#" are ignored.
+ */
+public final class SeatLayout {
+    public static final byte REGULAR_SEAT = 0;
+    public static final byte PREMIUM_SEAT = 1;
+    public static final String LAYOUTS_PROPERTY = "busbooking.layouts";
+
+    public static final SeatLayout STANDARD = new SeatLayout("Standard", "R R | R R", true, true);
+    public static final SeatLayout PREMIUM = new SeatLayout("Premium", "P | R R", true, true);
+    public static final SeatLayout MINIBUS = new SeatLayout("Minibus", "R R", false, true);
+
+    private static volatile Map<String, SeatLayout> types;
+
+    private final String name;
+    private final boolean refundable;
+    private final boolean builtIn;
+    private final String arrangement;
+    private final char[] rowTemplate;
+    private final int[] seatPositions;
+    private final byte[] columnClasses;
+    private final int premiumSeatsPerRow;
+    private final int[] premiumSeatsBefore;
+    private final Map<Integer, byte[]> seatClassTables = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a layout from its row pattern.
+     *
+     * @param name       the name of the bus type, as given in INIT_VOYAGE commands
+     * @param pattern    the row pattern, such as "R R | R R"
+     * @param refundable true if tickets of the bus type can be refunded
+     * @param builtIn    true for the bus types that have their own class
+     * @throws IllegalArgumentException if the pattern contains an unknown token or no seat
+     */
+    private SeatLayout(String name, String pattern, boolean refundable, boolean builtIn) {
+        this.name = name;
+        this.refundable = refundable;
+        this.builtIn = builtIn;
+        String[] tokens = pattern.trim().split(" +");
+        StringBuilder groups = new StringBuilder();
+        int seats = 0;
+        int premiumSeats = 0;
+        int group = 0;
+        for (String token : tokens) {
+            if (token.equals("|")) {
+                groups.append(group).append('+');
+                group = 0;
+            } else if (token.equals("R") || token.equals("P")) {
+                seats++;
+                group++;
+                if (token.equals("P")) {
+                    premiumSeats++;
+                }
+            } else {
+                throw new IllegalArgumentException("ERROR: " + token + " is not a seat or an aisle, row patterns may only contain \"R\", \"P\" and \"|\"!");
+            }
+        }
+        if (seats == 0) {
+            throw new IllegalArgumentException("ERROR: The layout of " + name + " has no seats!");
+        }
+        arrangement = groups.append(group).toString();
+        rowTemplate = String.join(" ", tokens).toCharArray();
+        seatPositions = new int[seats];
+        columnClasses = new byte[seats];
+        int seat = 0;
+        for (int i = 0; i < rowTemplate.length; i++) {
+            if (rowTemplate[i] == 'R' || rowTemplate[i] == 'P') {
+                columnClasses[seat] = rowTemplate[i] == 'P' ? PREMIUM_SEAT : REGULAR_SEAT;
+                seatPositions[seat++] = i;
+            }
+        }
+        premiumSeatsPerRow = premiumSeats;
+        premiumSeatsBefore = new int[seats + 1];
+        for (int column = 0; column < seats; column++) {
+            premiumSeatsBefore[column + 1] = premiumSeatsBefore[column] + columnClasses[column];
+        }
+    }
+
+    /**
+     * Returns the layout of a bus type.
+     *
+     * @param type the name of the bus type, as given in INIT_VOYAGE commands
+     * @return the layout, or null if there is no bus type with that name
+     * @throws UsageException if the file of additional bus types cannot be read or is malformed
+     */
+    public static SeatLayout forType(String type) {
+        return types().get(type);
+    }
+
+    /**
+     * Tells whether a name is the name of a bus type, ignoring case.
+     *
+     * @param type the name to check
+     * @return true if INIT_VOYAGE accepts the name
+     */
+    public static boolean isKnownType(String type) {
+        return isKnown(types(), type);
+    }
+
+    private static Map<String, SeatLayout> types() {
+        Map<String, SeatLayout> known = types;
+        if (known == null) {
+            synchronized (SeatLayout.class) {
+                known = types;
+                if (known == null) {
+                    known = new LinkedHashMap<>();
+                    known.put(STANDARD.name, STANDARD);
+                    known.put(PREMIUM.name, PREMIUM);
+                    known.put(MINIBUS.name, MINIBUS);
+                    String path = System.getProperty(LAYOUTS_PROPERTY);
+                    if (path != null) {
+                        load(path, known);
+                    }
+                    types = known;
+                }
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Reads the additional bus types from a file.
+     */
+    private static void load(String path, Map<String, SeatLayout> known) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UsageException("ERROR: Cannot read the bus layouts from " + path + ": " + e.getMessage());
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\t");
+            if (parts.length != 3 || !(parts[2].equals("refundable") || parts[2].equals("nonrefundable"))) {
+                throw new UsageException("ERROR: Line " + (i + 1) + " of " + path + " must hold a name, a row pattern and \"refundable\" or \"nonrefundable\"!");
+            }
+            if (isKnown(known, parts[0])) {
+                throw new UsageException("ERROR: Line " + (i + 1) + " of " + path + " describes " + parts[0] + " again!");
+            }
+            try {
+                known.put(parts[0], new SeatLayout(parts[0], parts[1], parts[2].equals("refundable"), false));
+            } catch (IllegalArgumentException e) {
+                throw new UsageException(e.getMessage() + " (line " + (i + 1) + " of " + path + ")");
+            }
+        }
+    }
+
+    private static boolean isKnown(Map<String, SeatLayout> known, String type) {
+        for (String name : known.keySet()) {
+            if (name.equalsIgnoreCase(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRefundable() {
+        return refundable;
+    }
+
+    /**
+     * Tells whether the bus type has its own class and its own INIT_VOYAGE format.
+     *
+     * @return true for the standard, premium and minibus layouts
+     */
+    public boolean isBuiltIn() {
+        return builtIn;
+    }
+
+    public boolean hasPremiumSeats() {
+        return premiumSeatsPerRow > 0;
+    }
+
+    public int getSeatsPerRow() {
+        return columnClasses.length;
+    }
+
+    public int getPremiumSeatsPerRow() {
+        return premiumSeatsPerRow;
+    }
+
+    /**
+     * Counts the premium seats of a block of consecutive seats from the row pattern, without visiting the seats.
+     *
+     * @param first the zero based index of the first seat
+     * @param end   the zero based index after the last seat
+     * @return the number of premium seats from first to end
+     */
+    public int countPremiumSeats(int first, int end) {
+        return premiumSeatsUpTo(end) - premiumSeatsUpTo(first);
+    }
+
+    private int premiumSeatsUpTo(int seats) {
+        int seatsPerRow = columnClasses.length;
+        return seats / seatsPerRow * premiumSeatsPerRow + premiumSeatsBefore[seats % seatsPerRow];
+    }
+
+    /**
+     * Returns the number of seats between the aisles, as in "2+2".
+     *
+     * @return the seat groups of a row, joined by "+"
+     */
+    public String getArrangement() {
+        return arrangement;
+    }
+
+    /**
+     * Returns the class of every seat of a bus with the given number of rows. The table is compiled on first use and shared
+     * by every bus with the same layout and number of rows, so it must not be modified.
+     *
+     * @param rows the number of seat rows
+     * @return the class of every seat, {@link #REGULAR_SEAT} or {@link #PREMIUM_SEAT}, indexed by the zero based seat index
+     */
+    public byte[] seatClasses(int rows) {
+        return seatClassTables.computeIfAbsent(rows, count -> {
+            byte[] table = new byte[count * columnClasses.length];
+            for (int offset = 0; offset < table.length; offset += columnClasses.length) {
+                System.arraycopy(columnClasses, 0, table, offset, columnClasses.length);
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Renders the seats of a snapshot row by row, separating seats by a space and showing the aisles.
+     *
+     * @param snapshot a snapshot of a bus with this layout
+     * @return the rows of the seating arrangement, each followed by a newline
+     */
+    public String render(VoyageSnapshot snapshot) {
+        int capacity = snapshot.getCapacity();
+        if (capacity == 0) {
+            return "\n";
+        }
+        char[] row = rowTemplate.clone();
+        StringBuilder visualization = new StringBuilder(capacity / seatPositions.length * (row.length + 1));
+        for (int seat = 0; seat < capacity; ) {
+            for (int column = 0; column < seatPositions.length; column++) {
+                row[seatPositions[column]] = snapshot.seatSymbol(seat++);
+            }
+            visualization.append(row).append('\n');
+        }
+        return visualization.toString();
+    }
+}
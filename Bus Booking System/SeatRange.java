@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code SeatRange} class handles the seat ranges of {@code SELL_TICKET} and {@code REFUND_TICKET} commands. Besides single
+ * seat numbers, the underscore separated seat list of these commands may hold ranges of seats such as "1-40" and whole rows
+ * such as "row:3" or "row:3-7", so group and charter bookings name a coach in a few tokens. A seat list without ranges is
+ * handled seat by seat as before.
+ *
+ * <p>A range is a block of consecutive seats, so it is validated in one pass over its seats, marked sold or empty with one
+ * bulk operation, and priced from the number of premium seats it covers instead of seat by seat.
+ */
+public final class SeatRange {
+    private static final String ROW_PREFIX = "row:";
+
+    private final int first;
+    private final int end;
+
+    private SeatRange(int first, int end) {
+        this.first = first;
+        this.end = end;
+    }
+
+    /**
+     * Returns the zero based index of the first seat of the range.
+     *
+     * @return the index of the first seat
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the zero based index after the last seat of the range.
+     *
+     * @return the index after the last seat
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Tells whether a seat list holds a range. A token that is a plain number, including a negative one, is a single seat.
+     *
+     * @param tokens the underscore separated tokens of the seat list
+     * @return true if at least one token is a range or a row
+     */
+    public static boolean hasRanges(String[] tokens) {
+        for (String token : tokens) {
+            if (token.startsWith(ROW_PREFIX) || token.indexOf('-', 1) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a seat list with ranges into the seat ranges of a bus, in the order they were given.
+     *
+     * @param tokens the underscore separated tokens of the seat list
+     * @param bus    the bus the seats belong to
+     * @return one range per token
+     * @throws IllegalArgumentException if a token is malformed, names a seat the bus does not have, or names a seat that
+     *                                  another token names as well
+     */
+    public static List<SeatRange> parse(String[] tokens, Bus bus) {
+        List<SeatRange> ranges = new ArrayList<>(tokens.length);
+        for (String token : tokens) {
+            ranges.add(token.startsWith(ROW_PREFIX) ? parseRows(token, bus) : parseSeats(token, bus));
+        }
+        SeatRange[] sorted = ranges.toArray(new SeatRange[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.first, b.first));
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i].first < sorted[i - 1].end) {
+                throw new IllegalArgumentException("ERROR: Seat " + (sorted[i].first + 1) + " is requested more than once!");
+            }
+        }
+        return ranges;
+    }
+
+    private static SeatRange parseSeats(String token, Bus bus) {
+        int[] bounds = parseBounds(token, token);
+        if (bounds[0] <= 0) {
+            throw new IllegalArgumentException("ERROR: " + bounds[0] + " is not a positive integer, seat number must be a positive integer!");
+        }
+        if (bounds[1] > bus.getCapacity()) {
+            throw new IllegalArgumentException("ERROR: There is no such a seat!");
+        }
+        return new SeatRange(bounds[0] - 1, bounds[1]);
+    }
+
+    private static SeatRange parseRows(String token, Bus bus) {
+        int[] bounds = parseBounds(token, token.substring(ROW_PREFIX.length()));
+        if (bounds[0] <= 0) {
+            throw new IllegalArgumentException("ERROR: " + bounds[0] + " is not a positive integer, row number must be a positive integer!");
+        }
+        if (bounds[1] > bus.getRows()) {
+            throw new IllegalArgumentException("ERROR: There is no such a seat!");
+        }
+        int seatsPerRow = bus.getLayout().getSeatsPerRow();
+        return new SeatRange((bounds[0] - 1) * seatsPerRow, bounds[1] * seatsPerRow);
+    }
+
+    /**
+     * Parses "a" or "a-b" into the first and the last number, which must not be smaller than the first.
+     */
+    private static int[] parseBounds(String token, String range) {
+        int dash = range.indexOf('-', 1);
+        try {
+            int from = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+            int to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1));
+            if (from <= to) {
+                return new int[]{from, to};
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("ERROR: " + token + " is not a valid seat range, seat ranges must be given as 1-40 or row:3-7!");
+    }
+
+    /**
+     * Appends the seat numbers of the range to a list of seat numbers separated by "-", as success messages list them.
+     *
+     * @param seats the list to append to
+     */
+    public void appendSeatNumbers(StringBuilder seats) {
+        for (int index = first; index < end; index++) {
+            if (seats.length() > 0) {
+                seats.append('-');
+            }
+            seats.append(index + 1);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code SeatSubscriptionServer} class offers the {@code SeatSubscriptions} of a booking system over a loopback socket,
+ * so seat map views can be pushed the seat changes of the voyages they show. It is started by follow mode when the system
+ * property {@value #PORT_PROPERTY} is set, where 0 lets the system choose the port, and it announces its port on the standard
+ * output as "SUBSCRIPTION_PORT port".
+ *
+ * <p>Clients send tab separated lines in UTF-8: "SUBSCRIBE id" starts and "UNSUBSCRIBE id" stops watching a voyage. The
+ * server answers with one line per notification: "SEATS id version sold freed", where sold and freed are the seat numbers
+ * joined with "_" like in the {@code SELL_TICKET} command, or "-" if there are none, followed by "RETIRED id version" if the
+ * voyage has been cancelled or has departed. Malformed requests are answered with an "ERROR:" line.
+ *
+ * <p>Every connection has a queue of at most {@value #QUEUE_LIMIT} lines. A client that falls that far behind is
+ * disconnected, so a slow client never delays the notifications of the others.
+ */
+public class SeatSubscriptionServer implements AutoCloseable {
+    public static final String PORT_PROPERTY = "busbooking.subscriptions.port";
+    static final int QUEUE_LIMIT = 10_000;
+    private static final String CLOSED = "";
+
+    private final SeatSubscriptions subscriptions;
+    private final ServerSocket server;
+
+    /**
+     * Opens the server socket and starts accepting clients.
+     *
+     * @param subscriptions the subscriptions of the booking system to offer
+     * @param port          the loopback port to listen on, or 0 to let the system choose one
+     * @throws IOException if the port cannot be opened
+     */
+    public SeatSubscriptionServer(SeatSubscriptions subscriptions, int port) throws IOException {
+        this.subscriptions = subscriptions;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        startThread("seat-subscription-server", this::accept);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Connection connection = new Connection(socket);
+                startThread("seat-subscription-writer", connection::write);
+                startThread("seat-subscription-reader", connection::read);
+            } catch (IOException e) {
+                // The server socket has been closed.
+            }
+        }
+    }
+
+    private static void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * One client, with its subscriptions and the lines waiting to be sent to it.
+     */
+    private final class Connection implements SeatSubscriptions.Listener {
+        private final Socket socket;
+        private final BlockingQueue<String> lines = new ArrayBlockingQueue<>(QUEUE_LIMIT);
+        private final Map<Integer, SeatSubscriptions.Subscription> watched = new ConcurrentHashMap<>();
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void read() {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    String error = handle(line.split("\\t"));
+                    if (error != null && !lines.offer(error)) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // The client has gone away.
+            } finally {
+                disconnect();
+            }
+        }
+
+        private String handle(String[] parts) {
+            boolean subscribe = parts[0].equals("SUBSCRIBE");
+            if (parts.length != 2 || !(subscribe || parts[0].equals("UNSUBSCRIBE"))) {
+                return "ERROR: Erroneous usage of \"" + parts[0] + "\" request!";
+            }
+            int id;
+            try {
+                id = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return "ERROR: " + parts[1] + " is not a positive integer, ID of a voyage must be a positive integer!";
+            }
+            if (id <= 0) {
+                return "ERROR: " + id + " is not a positive integer, ID of a voyage must be a positive integer!";
+            }
+            if (subscribe && !watched.containsKey(id)) {
+                watched.put(id, subscriptions.subscribe(id, this));
+            } else if (!subscribe && watched.containsKey(id)) {
+                watched.remove(id).close();
+            }
+            return null;
+        }
+
+        @Override
+        public void seatsChanged(SeatSubscriptions.SeatChange change) {
+            String line = "SEATS\t" + change.getId() + "\t" + change.getVersion() + "\t" + seatList(change.getSold()) + "\t" + seatList(change.getFreed());
+            if (change.isRetired()) {
+                line += "\nRETIRED\t" + change.getId() + "\t" + change.getVersion();
+            }
+            if (!lines.offer(line)) {
+                disconnect();
+                throw new IllegalStateException("the client of " + socket + " is too slow");
+            }
+        }
+
+        void write() {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                while (true) {
+                    String line = lines.take();
+                    if (line == CLOSED) {
+                        return;
+                    }
+                    out.write(line);
+                    out.write('\n');
+                    if (lines.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                disconnect();
+            }
+        }
+
+        private void disconnect() {
+            for (Integer id : watched.keySet()) {
+                SeatSubscriptions.Subscription subscription = watched.remove(id);
+                if (subscription != null) {
+                    subscription.close();
+                }
+            }
+            lines.clear();
+            lines.offer(CLOSED);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing is left to report to.
+            }
+        }
+    }
+
+    private static String seatList(int[] seats) {
+        if (seats.length == 0) {
+            return "-";
+        }
+        StringBuilder list = new StringBuilder();
+        for (int seat : seats) {
+            if (list.length() > 0) {
+                list.append('_');
+            }
+            list.append(seat);
+        }
+        return list.toString();
+    }
+}
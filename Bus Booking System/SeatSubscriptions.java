@@ -0,0 +1,299 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code SeatSubscriptions} class lets clients watch the seat maps of voyages instead of polling {@code PRINT_VOYAGE}.
+ * Every voyage version published by a sale, refund, hold, cancellation or departure marks the voyage as changed, which only
+ * costs a map lookup while nobody watches it. Every interval, the changed voyages are compared with the seat map their
+ * watchers were last told about, and each watcher receives one {@link SeatChange} with the seats sold and freed since then.
+ * Any number of changes within an interval are coalesced into that one notification, so the cost grows with the number of
+ * changed voyages and their watchers, not with the number of commands or polls.
+ *
+ * <p>A new watcher first receives the full seat map of the voyage as a change from an empty voyage. Listeners are called on
+ * the notification thread of the booking system one after another, so they should hand the change over instead of blocking.
+ * A listener that throws an exception is unsubscribed.
+ *
+ * <p>The interval is {@value #DEFAULT_INTERVAL_MILLIS} milliseconds unless the system property {@value #INTERVAL_PROPERTY}
+ * gives another one. {@code SeatSubscriptionServer} offers the subscriptions over a local socket.
+ */
+public class SeatSubscriptions {
+    public static final String INTERVAL_PROPERTY = "busbooking.subscriptions.interval";
+    public static final long DEFAULT_INTERVAL_MILLIS = 200;
+
+    /**
+     * Receives the seat changes of a watched voyage.
+     */
+    public interface Listener {
+        void seatsChanged(SeatChange change);
+    }
+
+    /**
+     * The seats of a voyage that changed since its watcher was last notified.
+     */
+    public static final class SeatChange {
+        private final int id;
+        private final long version;
+        private final int[] sold;
+        private final int[] freed;
+        private final boolean retired;
+
+        SeatChange(int id, long version, int[] sold, int[] freed, boolean retired) {
+            this.id = id;
+            this.version = version;
+            this.sold = sold;
+            this.freed = freed;
+            this.retired = retired;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the version of the booking system at which the reported seat map was published.
+         *
+         * @return the version of the voyage snapshot the change leads to
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the seats that have been sold since the last notification.
+         *
+         * @return the seat numbers, starting from 1, in ascending order
+         */
+        public int[] getSold() {
+            return sold.clone();
+        }
+
+        /**
+         * Returns the seats that have been refunded since the last notification.
+         *
+         * @return the seat numbers, starting from 1, in ascending order
+         */
+        public int[] getFreed() {
+            return freed.clone();
+        }
+
+        /**
+         * Tells whether the voyage has been cancelled or has departed. All its seats are reported as freed then, and the next
+         * change of a voyage with the same ID starts from an empty voyage again.
+         *
+         * @return true if the voyage no longer exists
+         */
+        public boolean isRetired() {
+            return retired;
+        }
+    }
+
+    /**
+     * A listener watching one voyage. Closing it ends the notifications.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final int id;
+        private final Listener listener;
+
+        private Subscription(int id, Listener listener) {
+            this.id = id;
+            this.listener = listener;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void close() {
+            unsubscribe(this);
+        }
+    }
+
+    /**
+     * The watchers of one voyage and the seat map they were last told about.
+     */
+    private static final class Watch {
+        private final int id;
+        private final List<Subscription> subscribers = new ArrayList<>();
+        private final List<Subscription> joining = new ArrayList<>();
+        private final AtomicBoolean changed = new AtomicBoolean();
+        private volatile Bus bus;
+        private long[] delivered = new long[0];
+
+        Watch(int id) {
+            this.id = id;
+        }
+    }
+
+    private final BookingSystem owner;
+    private final Map<Integer, Watch> watches = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Watch> changedWatches = new ConcurrentLinkedQueue<>();
+    private volatile boolean watching = false;
+    private ScheduledExecutorService notifier;
+
+    SeatSubscriptions(BookingSystem owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Starts watching a voyage. The voyage does not have to exist yet; the watcher is notified once it is initialized.
+     *
+     * @param id       the ID of the voyage
+     * @param listener receives the changes of the voyage on the notification thread
+     * @return the subscription, which has to be closed to stop the notifications
+     */
+    public synchronized Subscription subscribe(int id, Listener listener) {
+        Subscription subscription = new Subscription(id, listener);
+        Watch watch = watches.computeIfAbsent(id, Watch::new);
+        watch.joining.add(subscription);
+        watching = true;
+        Bus bus = owner.findBus(id);
+        if (bus != null) {
+            markChanged(watch, bus);
+        }
+        if (notifier == null) {
+            long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS);
+            notifier = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "seat-subscriptions");
+                thread.setDaemon(true);
+                return thread;
+            });
+            notifier.scheduleWithFixedDelay(this::notifyWatchers, interval, Math.max(1, interval), TimeUnit.MILLISECONDS);
+        }
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        Watch watch = watches.get(subscription.id);
+        if (watch == null) {
+            return;
+        }
+        watch.subscribers.remove(subscription);
+        watch.joining.remove(subscription);
+        if (watch.subscribers.isEmpty() && watch.joining.isEmpty()) {
+            watches.remove(subscription.id);
+            watching = !watches.isEmpty();
+        }
+    }
+
+    /**
+     * Called by the booking system whenever a voyage publishes a new version.
+     *
+     * @param bus the voyage that changed
+     */
+    void voyageChanged(Bus bus) {
+        if (!watching) {
+            return;
+        }
+        Watch watch = watches.get(bus.getId());
+        if (watch != null) {
+            markChanged(watch, bus);
+        }
+    }
+
+    private void markChanged(Watch watch, Bus bus) {
+        watch.bus = bus;
+        if (watch.changed.compareAndSet(false, true)) {
+            changedWatches.add(watch);
+        }
+    }
+
+    /**
+     * Notifies the watchers of every voyage that changed since the last call. This runs on the notification thread every
+     * interval, and can be called directly to deliver pending changes right away.
+     *
+     * @return the number of notifications delivered
+     */
+    public synchronized int notifyWatchers() {
+        int delivered = 0;
+        for (Watch watch = changedWatches.poll(); watch != null; watch = changedWatches.poll()) {
+            watch.changed.set(false);
+            if (watches.get(watch.id) != watch) {
+                continue;
+            }
+            VoyageSnapshot snapshot = watch.bus.snapshot();
+            long[] seats = soldSeats(snapshot);
+            if (!watch.subscribers.isEmpty()) {
+                SeatChange change = diff(watch.id, snapshot, watch.delivered, seats);
+                if (change.sold.length > 0 || change.freed.length > 0 || change.retired) {
+                    delivered += deliver(watch, watch.subscribers, change);
+                }
+            }
+            if (!watch.joining.isEmpty()) {
+                List<Subscription> joining = new ArrayList<>(watch.joining);
+                watch.joining.clear();
+                watch.subscribers.addAll(joining);
+                delivered += deliver(watch, joining, diff(watch.id, snapshot, new long[0], seats));
+            }
+            watch.delivered = snapshot.isRetired() ? new long[0] : seats;
+        }
+        return delivered;
+    }
+
+    private int deliver(Watch watch, List<Subscription> subscriptions, SeatChange change) {
+        int delivered = 0;
+        for (Subscription subscription : new ArrayList<>(subscriptions)) {
+            try {
+                subscription.listener.seatsChanged(change);
+                delivered++;
+            } catch (RuntimeException e) {
+                unsubscribe(subscription);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Stops the notification thread. Pending changes are not delivered anymore.
+     */
+    public synchronized void close() {
+        if (notifier != null) {
+            notifier.shutdownNow();
+            notifier = null;
+        }
+    }
+
+    private static long[] soldSeats(VoyageSnapshot snapshot) {
+        int capacity = snapshot.getCapacity();
+        long[] seats = new long[(capacity + 63) >>> 6];
+        if (!snapshot.isRetired()) {
+            for (int i = 0; i < capacity; i++) {
+                if (snapshot.isSold(i)) {
+                    seats[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        return seats;
+    }
+
+    private static SeatChange diff(int id, VoyageSnapshot snapshot, long[] before, long[] after) {
+        return new SeatChange(id, snapshot.getVersion(), changedSeats(before, after), changedSeats(after, before), snapshot.isRetired());
+    }
+
+    /**
+     * Lists the seats that are set in one bitmap but not in another.
+     */
+    private static int[] changedSeats(long[] unset, long[] set) {
+        int count = 0;
+        for (int word = 0; word < set.length; word++) {
+            count += Long.bitCount(set[word] & ~(word < unset.length ? unset[word] : 0));
+        }
+        int[] seats = new int[count];
+        int next = 0;
+        for (int word = 0; word < set.length; word++) {
+            long bits = set[word] & ~(word < unset.length ? unset[word] : 0);
+            while (bits != 0) {
+                seats[next++] = (word << 6) + Long.numberOfTrailingZeros(bits) + 1;
+                bits &= bits - 1;
+            }
+        }
+        return seats;
+    }
+}
@@ -1,3 +1,4 @@
+import java.util.List;
 import java.util.Locale;
 /**
  * The {@code SellTicket} class handles the sale of tickets within the booking system.
@@ -9,16 +10,51 @@ public class SellTicket {
      * ensures they are available, and then completes the sale by updating seat status and revenue.
      *
      * @param busId The ID of the bus for which tickets are being sold.
-     * @param seatNumbers A string containing the seat numbers to sell, separated by underscores (e.g., "1_2_3").
+     * @param seatNumbers A string containing the seat numbers to sell, separated by underscores (e.g., "1_2_3"), which may
+     *                    include seat ranges and rows (e.g., "1-40" or "row:3-7").
      * @param args Command-line arguments used for specifying output paths for logging.
      */
     public static void seller(int busId, String seatNumbers, String[] args) {
         Bus bus = BookingSystem.getBusById(busId);
         if (bus == null) {
-            FileOutput.writeToFile(args[1], "ERROR: There is no voyage with ID of " + busId + "!", true, true);
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
             return;
         }
+        String result;
+        if (bus.tryBeginUpdate()) {
+            SaleCombiner combiner = bus.getSaleCombiner(false);
+            try {
+                result = sell(bus, seatNumbers);
+                if (combiner != null) {
+                    combiner.combine();
+                }
+            } finally {
+                bus.endUpdate();
+            }
+        } else {
+            // Another thread is changing the voyage, so the sale is queued and applied in a batch with the other waiting sales.
+            result = bus.getSaleCombiner(true).sell(seatNumbers);
+        }
+        if (result != null) {
+            FileOutput.writeToFile(args[1], result, true, true);
+        }
+    }
+
+    /**
+     * Sells tickets of a voyage whose update lock is held by the calling thread.
+     *
+     * @param bus         The bus for which tickets are being sold.
+     * @param seatNumbers A string containing the seat numbers to sell, separated by underscores (e.g., "1_2_3").
+     * @return The success or error line of the sale.
+     */
+    static String sell(Bus bus, String seatNumbers) {
+        if (bus.hasWaitlist()) {
+            return WaitlistTicket.reservedError(bus);
+        }
         String[] seatNumbersArray = seatNumbers.split("_");
+        if (SeatRange.hasRanges(seatNumbersArray)) {
+            return sellRanges(bus, seatNumbersArray);
+        }
         StringBuilder soldSeats = new StringBuilder();
         double totalCost = 0.0;
         boolean first = true;
@@ -30,24 +66,21 @@ public class SellTicket {
                     throw new IllegalArgumentException("ERROR: " + seatNumber + " is not a positive integer, seat number must be a positive integer!");
                 }
                 int index = seatNumber - 1;
-                if (index >= bus.seats.length || index < 0) {
+                if (index >= bus.getCapacity() || index < 0) {
                     throw new Exception("ERROR: There is no such a seat!");
                 }
-                if (bus.seats[index]) {
+                if (bus.isSold(index)) {
                     throw new Exception("ERROR: One or more seats already sold!");
                 }
+                if (bus.isHeld(index)) {
+                    throw new Exception("ERROR: One or more seats are held!");
+                }
             }
 
             for (String seat : seatNumbersArray) {
                 int seatNumber = Integer.parseInt(seat);
                 bus.sellSeat(seatNumber);
-                double seatPrice = bus.getPrice();
-
-                if (bus instanceof PremiumBus && (seatNumber - 1) % 3 == 0) {
-                    seatPrice = (((PremiumBus) bus).getPremiumFee() + 100) * seatPrice / 100;
-                }
-
-                totalCost += seatPrice;
+                totalCost += seatPrice(bus, seatNumber);
                 if (first) {
                     soldSeats.append(seatNumber);
                     first = false;
@@ -57,17 +90,64 @@ public class SellTicket {
             }
 
             if (soldSeats.length() > 0) {
-                String seatVoyage = String.format(Locale.US, "Seat %s of the Voyage %d from %s to %s was successfully sold for %.2f TL.",
+                return String.format(Locale.US, "Seat %s of the Voyage %d from %s to %s was successfully sold for %.2f TL.",
                         soldSeats, bus.getId(), bus.getFrom(), bus.getTo(), totalCost);
-                FileOutput.writeToFile(args[1], seatVoyage, true, true);
             }
+            return null;
 
         } catch (NumberFormatException e) {
-            FileOutput.writeToFile(args[1], "Error: Invalid seat number format - " , true, true);
+            return "Error: Invalid seat number format - ";
         } catch (IllegalArgumentException e) {
-            FileOutput.writeToFile(args[1], e.getMessage(), true, true);
+            return e.getMessage();
         } catch (Exception e) {
-            FileOutput.writeToFile(args[1], e.getMessage(), true, true);
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Sells the seats of a seat list with ranges, such as "1-40" or "row:3-7". Every range is checked in one pass over its
+     * seats before any seat is sold, and then sold as one block.
+     *
+     * @param bus    The bus for which tickets are being sold.
+     * @param tokens The underscore separated tokens of the seat list.
+     * @return The success or error line of the sale, listing every sold seat like a sale without ranges does.
+     */
+    private static String sellRanges(Bus bus, String[] tokens) {
+        List<SeatRange> ranges;
+        try {
+            ranges = SeatRange.parse(tokens, bus);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        for (SeatRange range : ranges) {
+            for (int index = range.getFirst(); index < range.getEnd(); index++) {
+                if (bus.isSold(index)) {
+                    return "ERROR: One or more seats already sold!";
+                }
+                if (bus.isHeld(index)) {
+                    return "ERROR: One or more seats are held!";
+                }
+            }
         }
+
+        StringBuilder soldSeats = new StringBuilder();
+        double totalCost = 0.0;
+        for (SeatRange range : ranges) {
+            totalCost += bus.sellRange(range);
+            range.appendSeatNumbers(soldSeats);
+        }
+        return String.format(Locale.US, "Seat %s of the Voyage %d from %s to %s was successfully sold for %.2f TL.",
+                soldSeats, bus.getId(), bus.getFrom(), bus.getTo(), totalCost);
+    }
+
+    /**
+     * Calculates the price paid for a seat, including the premium fee for premium seats.
+     *
+     * @param bus The bus of the seat.
+     * @param seatNumber The seat number.
+     * @return The price of the seat.
+     */
+    static double seatPrice(Bus bus, int seatNumber) {
+        return bus.getFare(bus.getSeatClass(seatNumber - 1));
     }
 }
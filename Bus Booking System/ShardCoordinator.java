@@ -0,0 +1,451 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The {@code ShardCoordinator} class runs the booking system as several worker processes that each own a hash partition of the
+ * voyage IDs. It reads the input file, routes every command to the {@code ShardWorker} that owns its voyage over a loopback
+ * socket, appends the returned output to the output file and merges the per-shard Z reports into the usual ID ordered report.
+ * Commands that do not name a voyage are handled by the first shard, since they do not depend on any voyage.
+ * Analytics commands are answered by every shard and merged, like Z reports, and exports are written from the blocks of
+ * every shard, one shard after the other.
+ *
+ * Each shard archives the voyages it seals in an archive of its own, see {@link Departures#shardArchivePath(String, int)}.
+ *
+ * <p>Sample usage: {@code java BookingSystem --sharded 4 input.txt output.txt}
+ */
+public class ShardCoordinator {
+    private final String[] args;
+    private final Process[] workers;
+    private final DataInputStream[] ins;
+    private final DataOutputStream[] outs;
+    private final Socket[] sockets;
+    private final boolean clockRuns = "system".equals(System.getProperty(BookingSystem.CLOCK_PROPERTY));
+    private long lastTick = 0;
+
+    /**
+     * A voyage block of a shard's Z report, used to merge the shards in ID order.
+     */
+    private static class ReportEntry {
+        private final int id;
+        private final byte[] block;
+        private final int shard;
+
+        ReportEntry(int id, byte[] block, int shard) {
+            this.id = id;
+            this.block = block;
+            this.shard = shard;
+        }
+    }
+
+    private ShardCoordinator(String[] args, int shards) {
+        this.args = args;
+        this.workers = new Process[shards];
+        this.ins = new DataInputStream[shards];
+        this.outs = new DataOutputStream[shards];
+        this.sockets = new Socket[shards];
+    }
+
+    /**
+     * Processes an input file with the given number of shard worker processes.
+     *
+     * @param args "--sharded", the number of shards, the input file path and the output file path.
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println("ERROR: Sharded mode works with the number of shards, the path to the input file and the path to the output file. Sample usage can be as follows: \"java BookingSystem --sharded 4 input.txt output.txt\". Program is going to terminate!");
+            System.exit(1);
+        }
+        int shards;
+        try {
+            shards = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            shards = 0;
+        }
+        if (shards <= 0) {
+            System.err.println("ERROR: " + args[1] + " is not a positive integer, number of shards must be a positive integer! Program is going to terminate!");
+            System.exit(1);
+        }
+        String[] files = {args[2], args[3]};
+        ShardCoordinator coordinator = new ShardCoordinator(files, shards);
+        boolean failed = false;
+        try {
+            BusOperation.checkFiles(files);
+            coordinator.start();
+            coordinator.process();
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            failed = true;
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("ERROR: Sharded processing failed: " + e.getMessage() + " Program is going to terminate!");
+            failed = true;
+        } finally {
+            coordinator.stop();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Launches the worker processes and connects to each of them.
+     */
+    private void start() throws IOException {
+        // Every shard runs on the clock of the coordinator, so that they all agree on which voyages have departed.
+        String clock = "system".equals(System.getProperty(BookingSystem.CLOCK_PROPERTY)) ? "system" : BookingSystem.fileRunClock().instant().toString();
+        int residentVoyages = BookingSystem.residentVoyages();
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int shard = 0; shard < workers.length; shard++) {
+            List<String> command = new ArrayList<>(Arrays.asList(javaBin, "-Dfile.encoding=" + Charset.defaultCharset().name()));
+            if (System.getProperty(SeatLayout.LAYOUTS_PROPERTY) != null) {
+                command.add("-D" + SeatLayout.LAYOUTS_PROPERTY + "=" + System.getProperty(SeatLayout.LAYOUTS_PROPERTY));
+            }
+            command.add("-D" + BookingSystem.RESIDENT_PROPERTY + "=" + residentVoyages);
+            command.add("-D" + BookingSystem.CLOCK_PROPERTY + "=" + clock);
+            command.add("-D" + Departures.ARCHIVE_PROPERTY + "=" + Departures.shardArchivePath(args[1], shard));
+            command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), BookingSystem.class.getName(), "--shard-worker"));
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            workers[shard] = builder.start();
+            BufferedReader announcement = new BufferedReader(new InputStreamReader(workers[shard].getInputStream(), StandardCharsets.UTF_8));
+            String line = announcement.readLine();
+            if (line == null || !line.startsWith("SHARD_PORT ")) {
+                throw new IllegalStateException("shard " + shard + " did not start.");
+            }
+            sockets[shard] = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring("SHARD_PORT ".length())));
+            sockets[shard].setTcpNoDelay(true);
+            ins[shard] = new DataInputStream(new BufferedInputStream(sockets[shard].getInputStream()));
+            outs[shard] = new DataOutputStream(new BufferedOutputStream(sockets[shard].getOutputStream()));
+        }
+    }
+
+    /**
+     * Routes every command of the input file and closes the output the same way a single process run does.
+     */
+    private void process() throws IOException {
+        String[] data = FileInput.readFile(args[0], true, true);
+        boolean lastCommandIsZReport = false;
+        for (String line : data) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (clockRuns) {
+                tick();
+            }
+            String[] parts = line.split("\\t");
+            if (parts[0].equals("Z_REPORT") && parts.length < 2) {
+                mergeZReport(true, "COMMAND: Z_REPORT\nZ Report:\n----------------\n");
+                lastCommandIsZReport = true;
+            } else if (VoyageRanking.isQuery(parts[0])) {
+                mergeAnalytics(parts);
+                lastCommandIsZReport = false;
+            } else if (parts[0].equals("REVENUE_REPORT")) {
+                mergeRevenueReport(parts);
+                lastCommandIsZReport = false;
+            } else if (parts[0].equals("EXPORT") && parts.length == 2 && !parts[1].isEmpty()) {
+                mergeExport(parts);
+                lastCommandIsZReport = false;
+            } else {
+                lastCommandIsZReport = execute(shardOf(parts), line);
+            }
+        }
+        if (!lastCommandIsZReport) {
+            mergeZReport(false, "Z Report:\n----------------\n");
+        }
+        RemoveLine.removeLastLine(args);
+        FileOutput.writeToFile(args[1], "----------------", true, false);
+        FileOutput.close(args[1]);
+    }
+
+    /**
+     * Finds the shard that owns the voyage a command refers to.
+     *
+     * @param parts the fields of the command.
+     * @return the index of the owning shard, or 0 if the command does not name a valid voyage ID.
+     */
+    int shardOf(String[] parts) {
+        int field = parts[0].equals("INIT_VOYAGE") ? 2 : 1;
+        if (parts.length <= field) {
+            return 0;
+        }
+        try {
+            int h = Integer.parseInt(parts[field]) * 0x9E3779B9;
+            return Math.floorMod(h ^ (h >>> 16), workers.length);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Lets every shard expire its holds and seal its departed voyages, which a shard otherwise only does before the commands
+     * routed to it. This is only needed while the clock runs, since nothing expires on the frozen clock of a file run, and is
+     * done at most once per tick of the hold timers, since holds do not expire more precisely than that.
+     */
+    private void tick() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastTick < BookingSystem.HOLD_TICK_MILLIS) {
+            return;
+        }
+        lastTick = now;
+        for (DataOutputStream out : outs) {
+            out.writeByte(ShardWorker.TICK);
+            ShardWorker.writeFrame(out, new byte[0]);
+            out.flush();
+        }
+        for (int shard = 0; shard < workers.length; shard++) {
+            checkStatus(shard);
+            append(ShardWorker.readFrame(ins[shard]));
+        }
+    }
+
+    private boolean execute(int shard, String line) throws IOException {
+        outs[shard].writeByte(ShardWorker.COMMAND);
+        ShardWorker.writeFrame(outs[shard], line.getBytes(StandardCharsets.UTF_8));
+        outs[shard].flush();
+        checkStatus(shard);
+        boolean zReport = ins[shard].readBoolean();
+        append(ShardWorker.readFrame(ins[shard]));
+        return zReport;
+    }
+
+    /**
+     * Collects the Z report of every shard and writes them as one report, ordered by voyage ID.
+     *
+     * @param expireHolds true if the workers should expire their holds first, as they do before every command.
+     * @param header      the lines written before the voyages.
+     */
+    private void mergeZReport(boolean expireHolds, String header) throws IOException {
+        byte[] payload = (expireHolds ? "1" : "").getBytes(StandardCharsets.UTF_8);
+        for (DataOutputStream out : outs) {
+            out.writeByte(ShardWorker.Z_REPORT);
+            ShardWorker.writeFrame(out, payload);
+            out.flush();
+        }
+        List<List<ReportEntry>> reports = new ArrayList<>();
+        for (int shard = 0; shard < workers.length; shard++) {
+            checkStatus(shard);
+            append(ShardWorker.readFrame(ins[shard]));
+            int count = ins[shard].readInt();
+            List<ReportEntry> report = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = ins[shard].readInt();
+                report.add(new ReportEntry(id, ShardWorker.readFrame(ins[shard]), shard));
+            }
+            reports.add(report);
+        }
+
+        FileOutput.writeToFile(args[1], header, true, false);
+        PriorityQueue<ReportEntry> heads = new PriorityQueue<>((a, b) -> Integer.compare(a.id, b.id));
+        int[] positions = new int[workers.length];
+        for (List<ReportEntry> report : reports) {
+            if (!report.isEmpty()) {
+                heads.add(report.get(0));
+            }
+        }
+        if (heads.isEmpty()) {
+            FileOutput.writeToFile(args[1], "No Voyages Available!", true, true);
+            FileOutput.writeToFile(args[1], "----------------", true, true);
+            return;
+        }
+        while (!heads.isEmpty()) {
+            ReportEntry entry = heads.poll();
+            append(entry.block);
+            List<ReportEntry> report = reports.get(entry.shard);
+            if (++positions[entry.shard] < report.size()) {
+                heads.add(report.get(positions[entry.shard]));
+            }
+        }
+    }
+
+    /**
+     * Runs an analytics command on every shard and writes the merged result: the best voyages of all shards ranked again,
+     * or the sum of the range totals of all shards.
+     *
+     * @param parts the fields of the command.
+     */
+    private void mergeAnalytics(String[] parts) throws IOException {
+        String error = VoyageRanking.validate(parts);
+        byte[] payload = (error == null ? String.join("\t", parts) : "").getBytes(StandardCharsets.UTF_8);
+        for (DataOutputStream out : outs) {
+            out.writeByte(ShardWorker.ANALYTICS);
+            ShardWorker.writeFrame(out, payload);
+            out.flush();
+        }
+        List<VoyageAnalytics.Entry> voyages = new ArrayList<>();
+        int voyageCount = 0;
+        long soldSeats = 0;
+        double revenue = 0;
+        for (int shard = 0; shard < workers.length; shard++) {
+            checkStatus(shard);
+            append(ShardWorker.readFrame(ins[shard]));
+            if (error != null) {
+                continue;
+            }
+            if (parts[0].equals("RANGE_REPORT")) {
+                voyageCount += ins[shard].readInt();
+                soldSeats += ins[shard].readLong();
+                revenue += ins[shard].readDouble();
+            } else {
+                int count = ins[shard].readInt();
+                for (int i = 0; i < count; i++) {
+                    voyages.add(new VoyageAnalytics.Entry(ins[shard].readInt(), ins[shard].readUTF(), ins[shard].readUTF(),
+                            ins[shard].readDouble(), ins[shard].readInt(), ins[shard].readInt()));
+                }
+            }
+        }
+
+        FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+        if (error != null) {
+            FileOutput.writeToFile(args[1], error, true, true);
+        } else if (parts[0].equals("RANGE_REPORT")) {
+            VoyageRanking.printRange(parts, new VoyageAnalytics.Aggregate(voyageCount, soldSeats, revenue), args);
+        } else {
+            voyages.sort(parts[0].equals("TOP_REVENUE") ? VoyageAnalytics.BY_REVENUE : VoyageAnalytics.BY_OCCUPANCY);
+            int count = Integer.parseInt(parts[1]);
+            VoyageRanking.printTop(parts, voyages.subList(0, Math.min(count, voyages.size())), args);
+        }
+    }
+
+    /**
+     * Runs a revenue report on every shard and writes the sum of the revenue rollups of all shards.
+     *
+     * @param parts the fields of the command.
+     */
+    private void mergeRevenueReport(String[] parts) throws IOException {
+        String error = RevenueReport.validate(parts);
+        for (DataOutputStream out : outs) {
+            out.writeByte(ShardWorker.REVENUE);
+            ShardWorker.writeFrame(out, new byte[0]);
+            out.flush();
+        }
+        RevenueRollup rollup = new RevenueRollup();
+        for (int shard = 0; shard < workers.length; shard++) {
+            checkStatus(shard);
+            append(ShardWorker.readFrame(ins[shard]));
+            for (int group = ins[shard].readInt(); group > 0; group--) {
+                rollup.add(ins[shard].readUTF(), null, ins[shard].readDouble(), ins[shard].readDouble(), ins[shard].readDouble());
+            }
+            for (int group = ins[shard].readInt(); group > 0; group--) {
+                rollup.add(null, ins[shard].readUTF(), ins[shard].readDouble(), ins[shard].readDouble(), ins[shard].readDouble());
+            }
+        }
+
+        FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+        if (error != null) {
+            FileOutput.writeToFile(args[1], error, true, true);
+        } else {
+            RevenueReport.print(parts, rollup.byType(), rollup.byRoute(), args);
+        }
+    }
+
+    /**
+     * Exports the voyages of every shard to one file. The blocks of the shards are written one shard after the other, so the
+     * voyages are only ordered by ID within each shard.
+     *
+     * @param parts the fields of a well-formed EXPORT command.
+     */
+    private void mergeExport(String[] parts) throws IOException {
+        for (DataOutputStream out : outs) {
+            out.writeByte(ShardWorker.EXPORT);
+            ShardWorker.writeFrame(out, new byte[0]);
+            out.flush();
+        }
+        int voyages = 0;
+        String error = null;
+        DataOutputStream file = null;
+        try {
+            file = VoyageExport.open(parts[1]);
+        } catch (IOException e) {
+            error = e.getMessage();
+        }
+        try {
+            for (int shard = 0; shard < workers.length; shard++) {
+                checkStatus(shard);
+                append(ShardWorker.readFrame(ins[shard]));
+                for (byte[] block = ShardWorker.readFrame(ins[shard]); block.length > 0; block = ShardWorker.readFrame(ins[shard])) {
+                    voyages += ((block[0] & 0xFF) << 24) | ((block[1] & 0xFF) << 16) | ((block[2] & 0xFF) << 8) | (block[3] & 0xFF);
+                    if (error == null) {
+                        try {
+                            file.write(block);
+                        } catch (IOException e) {
+                            error = e.getMessage();
+                        }
+                    }
+                }
+            }
+            if (error == null) {
+                try {
+                    VoyageExport.close(file);
+                    file.close();
+                } catch (IOException e) {
+                    error = e.getMessage();
+                }
+            }
+        } finally {
+            if (file != null && error != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // The error has been reported already.
+                }
+            }
+        }
+
+        FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+        if (error != null) {
+            FileOutput.writeToFile(args[1], "ERROR: Voyages cannot be exported to " + parts[1] + "!", true, true);
+        } else {
+            VoyageExport.printExported(voyages, parts[1], args);
+        }
+    }
+
+    private void checkStatus(int shard) throws IOException {
+        if (ins[shard].readByte() != ShardWorker.OK) {
+            throw new IllegalStateException("shard " + shard + " reported " + new String(ShardWorker.readFrame(ins[shard]), StandardCharsets.UTF_8) + ".");
+        }
+    }
+
+    private void append(byte[] output) {
+        if (output.length > 0) {
+            FileOutput.writeBytes(args[1], output);
+        }
+    }
+
+    /**
+     * Asks every worker to terminate and waits for it.
+     */
+    private void stop() {
+        for (int shard = 0; shard < workers.length; shard++) {
+            try {
+                if (outs[shard] != null) {
+                    outs[shard].writeByte(ShardWorker.QUIT);
+                    outs[shard].flush();
+                    sockets[shard].close();
+                }
+            } catch (IOException e) {
+                // The worker is gone already.
+            }
+            if (workers[shard] != null) {
+                try {
+                    workers[shard].waitFor();
+                } catch (InterruptedException e) {
+                    workers[shard].destroy();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ShardWorker} class is a worker process of the sharded deployment mode.
+ * It owns the voyages whose IDs hash to its shard, executes the commands the {@code ShardCoordinator} routes to it and sends
+ * back the output they produce. Z reports are sent back voyage by voyage, so that the coordinator can merge them in ID order.
+ *
+ * <p>The worker listens on a loopback port chosen by the system, announces it on the standard output as
+ * "SHARD_PORT port", serves a single coordinator connection and terminates when the connection is closed.
+ * Every request is a type byte followed by a length prefixed UTF-8 payload, and every response starts with a status byte.
+ * Analytics commands are answered with the shard's own top voyages or range totals, which the coordinator merges, and
+ * exports with the encoded export blocks of the shard's voyages, which the coordinator writes to the export file, and
+ * revenue reports with the shard's revenue rollup, which the coordinator adds up. A tick only expires the holds and seals
+ * the departed voyages of the shard, so that shards that receive no commands keep up with the clock as well.
+ *
+ * <p>The output of the worker is collected in memory command by command, see {@link FileOutput#beginDivert(String)}, and
+ * never written to its output file.
+ */
+public class ShardWorker {
+    static final byte COMMAND = 'C';
+    static final byte Z_REPORT = 'Z';
+    static final byte ANALYTICS = 'A';
+    static final byte EXPORT = 'X';
+    static final byte REVENUE = 'R';
+    static final byte TICK = 'T';
+    static final byte QUIT = 'Q';
+    static final byte OK = 'O';
+    static final byte FAILED = 'E';
+
+    private final String[] args;
+
+    private ShardWorker(String outputPath) {
+        this.args = new String[]{"", outputPath};
+    }
+
+    /**
+     * Runs a worker process.
+     *
+     * @param args "--shard-worker".
+     */
+    public static void main(String[] args) throws IOException {
+        File output = File.createTempFile("shard", ".txt");
+        output.deleteOnExit();
+        ShardWorker worker = new ShardWorker(output.getPath());
+        BookingSystem.current().setClock(BookingSystem.fileRunClock());
+        BookingSystem.current().useVoyageStore();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            System.out.println("SHARD_PORT " + server.getLocalPort());
+            System.out.flush();
+            try (Socket socket = server.accept()) {
+                socket.setTcpNoDelay(true);
+                worker.serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            }
+        }
+    }
+
+    private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        FileOutput.beginDivert(args[1]);
+        while (true) {
+            byte type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            if (type == QUIT) {
+                return;
+            }
+            String line = new String(readFrame(in), StandardCharsets.UTF_8);
+            try {
+                if (type == COMMAND) {
+                    boolean zReport = BusOperation.execute(line, args);
+                    out.writeByte(OK);
+                    out.writeBoolean(zReport);
+                    writeFrame(out, takeOutput());
+                } else if (type == ANALYTICS) {
+                    HoldSeat.expireHolds(args);
+                    Departures.sealDeparted(args);
+                    out.writeByte(OK);
+                    writeFrame(out, takeOutput());
+                    if (!line.isEmpty()) {
+                        writeAnalytics(out, line.split("\\t"));
+                    }
+                } else if (type == TICK) {
+                    HoldSeat.expireHolds(args);
+                    Departures.sealDeparted(args);
+                    out.writeByte(OK);
+                    writeFrame(out, takeOutput());
+                } else if (type == REVENUE) {
+                    HoldSeat.expireHolds(args);
+                    Departures.sealDeparted(args);
+                    out.writeByte(OK);
+                    writeFrame(out, takeOutput());
+                    RevenueRollup rollup = BookingSystem.getRevenueRollup();
+                    writeRevenue(out, rollup.byType());
+                    writeRevenue(out, rollup.byRoute());
+                } else if (type == EXPORT) {
+                    HoldSeat.expireHolds(args);
+                    Departures.sealDeparted(args);
+                    out.writeByte(OK);
+                    writeFrame(out, takeOutput());
+                    try (BookingSystem.Snapshot snapshot = BookingSystem.openSnapshot()) {
+                        VoyageExport.writeBlocks(snapshot, block -> writeFrame(out, block));
+                    }
+                    writeFrame(out, new byte[0]);
+                } else {
+                    if (line.equals("1")) {
+                        HoldSeat.expireHolds(args);
+                        Departures.sealDeparted(args);
+                    }
+                    byte[] expired = takeOutput();
+                    List<VoyageSnapshot> voyages = new ArrayList<>();
+                    try (BookingSystem.Snapshot snapshot = BookingSystem.openSnapshot()) {
+                        snapshot.forEach(voyages::add);
+                    }
+                    out.writeByte(OK);
+                    writeFrame(out, expired);
+                    out.writeInt(voyages.size());
+                    for (VoyageSnapshot voyage : voyages) {
+                        Print.printZReportEntry(voyage, args);
+                        out.writeInt(voyage.getId());
+                        writeFrame(out, takeOutput());
+                    }
+                }
+            } catch (RuntimeException e) {
+                takeOutput();
+                out.writeByte(FAILED);
+                writeFrame(out, e.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends the revenue of the groups of a rollup as (name, sales, refunds, cancellations) records preceded by their count.
+     */
+    private static void writeRevenue(DataOutputStream out, Map<String, RevenueRollup.Totals> groups) throws IOException {
+        out.writeInt(groups.size());
+        for (Map.Entry<String, RevenueRollup.Totals> group : groups.entrySet()) {
+            out.writeUTF(group.getKey());
+            out.writeDouble(group.getValue().getSales());
+            out.writeDouble(group.getValue().getRefunds());
+            out.writeDouble(group.getValue().getCancellations());
+        }
+    }
+
+    /**
+     * Sends the answer of this shard to a valid analytics command: the top voyages of the shard as (ID, from, to, revenue, sold
+     * seats, capacity) records preceded by their count, or the voyage count, sold seats and revenue of the range.
+     */
+    private void writeAnalytics(DataOutputStream out, String[] parts) throws IOException {
+        VoyageAnalytics analytics = BookingSystem.getAnalytics();
+        if (parts[0].equals("RANGE_REPORT")) {
+            VoyageAnalytics.Aggregate totals = analytics.range(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            out.writeInt(totals.getVoyages());
+            out.writeLong(totals.getSoldSeats());
+            out.writeDouble(totals.getRevenue());
+            return;
+        }
+        int count = Integer.parseInt(parts[1]);
+        List<VoyageAnalytics.Entry> top = parts[0].equals("TOP_REVENUE") ? analytics.topByRevenue(count) : analytics.topByOccupancy(count);
+        out.writeInt(top.size());
+        for (VoyageAnalytics.Entry entry : top) {
+            out.writeInt(entry.getId());
+            out.writeUTF(entry.getFrom());
+            out.writeUTF(entry.getTo());
+            out.writeDouble(entry.getRevenue());
+            out.writeInt(entry.getSoldSeats());
+            out.writeInt(entry.getCapacity());
+        }
+    }
+
+    /**
+     * Returns what has been written to the output of the worker since the last call.
+     */
+    private byte[] takeOutput() {
+        byte[] written = FileOutput.endCapture(args[1]);
+        FileOutput.beginDivert(args[1]);
+        return written;
+    }
+
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+        return frame;
+    }
+
+    static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+    }
+}
@@ -0,0 +1,624 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The {@code ThroughputBenchmark} class is an end-to-end benchmark runner for the booking system.
+ * Every case runs {@code BookingSystem.main} in a fresh JVM over an input file, verifies the produced output byte by byte
+ * against a golden output and reports lines per second, GC time, allocation rate, peak RSS and wall time per run.
+ * The summary is written as one JSON object per line so runs of different versions can be compared mechanically.
+ *
+ * <p>Sample usage: {@code java -cp classes ThroughputBenchmark --samples Sample_IO_v1.0.4 --generate 10000,100000 --runs 3 --reference-classpath baseline-classes --summary bench.jsonl}
+ * <p>Generated inputs have no golden output in the repository. {@code --reference-classpath dir} names the classes of a trusted
+ * build, such as the baseline, which produces the missing golden outputs before the cases run. Without it, a generated case
+ * whose golden output is missing is reported as {@code UNVERIFIED} and fails the run, since the build under test cannot be
+ * its own reference.
+ * <p>With {@code --flash-sale N} it instead lets N threads buy the seats of one voyage at the same time and reports the
+ * attempted sales per second.
+ * <p>With {@code --clock-check} it instead runs a file that holds seats and confirms the hold with the clock pinned to an
+ * instant before and one after the wall clock, and checks that the hold has not expired in between.
+ * <p>With {@code --archive-check} it instead follows a file with a voyage that departs a few seconds later and checks that
+ * the voyage is sealed into the departure archive while follow mode waits for more commands.
+ * <p>With {@code --footprint N} it instead initializes N voyages and sells some of their seats, once with the voyage store
+ * and once without, and reports the bytes the store uses per voyage and the heap used per voyage in both runs.
+ */
+public class ThroughputBenchmark {
+    private static final String STATS_PREFIX = "BENCH_STATS";
+    private static final String[] CLOCK_CHECK_INSTANTS = {"2016-05-01T08:30:00Z", "2036-05-01T08:30:00Z"};
+    private static final String[] CITIES = {"Ankara", "\u0130stanbul", "\u0130zmir", "Polatl\u0131", "Sinop", "Rize", "Pendik", "Halkal\u0131", "Eski\u015fehir", "Mu\u011fla"};
+
+    /**
+     * A single benchmark case, consisting of an input file and the golden output it must reproduce.
+     */
+    private static class BenchCase {
+        private final String name;
+        private final Path input;
+        private final Path golden;
+
+        BenchCase(String name, Path input, Path golden) {
+            this.name = name;
+            this.input = input;
+            this.golden = golden;
+        }
+    }
+
+    /**
+     * Entry point of the benchmark runner.
+     * With {@code --child input output} it runs the booking system once in the current JVM and prints its statistics,
+     * otherwise it acts as the driver that spawns a child JVM for every case and run.
+     *
+     * @param args the command line arguments described in the class documentation.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--child")) {
+            runChild(args[1], args[2]);
+            return;
+        }
+
+        Path samples = Paths.get("Sample_IO_v1.0.4");
+        Path workDir = null;
+        Path goldenDir = Paths.get("bench-golden");
+        Path summary = null;
+        List<Integer> generatedSizes = new ArrayList<>();
+        int runs = 1;
+        int flashSaleThreads = 0;
+        boolean clockCheck = false;
+        boolean archiveCheck = false;
+        int footprintVoyages = 0;
+        String referenceClasspath = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--samples":
+                    samples = Paths.get(args[++i]);
+                    break;
+                case "--work-dir":
+                    workDir = Paths.get(args[++i]);
+                    break;
+                case "--golden-dir":
+                    goldenDir = Paths.get(args[++i]);
+                    break;
+                case "--summary":
+                    summary = Paths.get(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--reference-classpath":
+                    referenceClasspath = args[++i];
+                    break;
+                case "--flash-sale":
+                    flashSaleThreads = Integer.parseInt(args[++i]);
+                    break;
+                case "--clock-check":
+                    clockCheck = true;
+                    break;
+                case "--archive-check":
+                    archiveCheck = true;
+                    break;
+                case "--footprint":
+                    footprintVoyages = Integer.parseInt(args[++i]);
+                    break;
+                case "--generate":
+                    for (String size : args[++i].split(",")) {
+                        generatedSizes.add(Integer.parseInt(size.trim()));
+                    }
+                    break;
+                default:
+                    System.err.println("ERROR: Unknown benchmark option \"" + args[i] + "\"!");
+                    System.exit(1);
+            }
+        }
+        if (flashSaleThreads > 0) {
+            String result = flashSale(flashSaleThreads, workDir != null ? workDir : Files.createTempDirectory("flash-sale"));
+            System.out.println(result);
+            if (result.contains("\"status\":\"MISMATCH\"")) {
+                System.exit(2);
+            }
+            return;
+        }
+        if (footprintVoyages > 0) {
+            System.out.println(footprint(footprintVoyages, workDir != null ? workDir : Files.createTempDirectory("footprint")));
+            return;
+        }
+        if (archiveCheck) {
+            String result = archiveCheck(workDir != null ? workDir : Files.createTempDirectory("archive-check"));
+            System.out.println(result);
+            if (!result.contains("\"status\":\"MATCH\"")) {
+                System.exit(2);
+            }
+            return;
+        }
+        if (clockCheck) {
+            boolean allPassed = true;
+            for (String instant : CLOCK_CHECK_INSTANTS) {
+                String result = clockCheck(instant, workDir != null ? workDir : Files.createTempDirectory("clock-check"));
+                System.out.println(result);
+                allPassed &= result.contains("\"status\":\"MATCH\"");
+            }
+            if (!allPassed) {
+                System.exit(2);
+            }
+            return;
+        }
+        if (workDir == null) {
+            workDir = Files.createTempDirectory("bench");
+        }
+        Files.createDirectories(workDir);
+        Files.createDirectories(goldenDir);
+
+        List<BenchCase> cases = new ArrayList<>();
+        for (int i = 1; Files.exists(samples.resolve("i" + i + ".txt")); i++) {
+            cases.add(new BenchCase("sample-" + i, samples.resolve("i" + i + ".txt"), samples.resolve("o" + i + ".txt")));
+        }
+        for (int size : generatedSizes) {
+            Path input = workDir.resolve("generated-" + size + ".txt");
+            generateInput(input, size, size);
+            Path golden = goldenDir.resolve("generated-" + size + ".out.txt");
+            if (!Files.exists(golden) && referenceClasspath != null && !recordGolden(input, golden, referenceClasspath)) {
+                System.err.println("ERROR: The reference build could not produce " + golden + "!");
+                System.exit(1);
+            }
+            cases.add(new BenchCase("generated-" + size, input, golden));
+        }
+
+        boolean allPassed = true;
+        for (BenchCase benchCase : cases) {
+            for (int run = 1; run <= runs; run++) {
+                String result = runCase(benchCase, run, workDir);
+                System.out.println(result);
+                if (summary != null) {
+                    Files.write(summary, (result + "\n").getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                if (!result.contains("\"status\":\"MATCH\"")) {
+                    allPassed = false;
+                }
+            }
+        }
+        if (!allPassed) {
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Runs one case in a child JVM, verifies its output and formats the result as a JSON object.
+     * A case without a golden output is run but reported as unverified.
+     *
+     * @param benchCase the case to run.
+     * @param run       the number of the run, starting from 1.
+     * @param workDir   the directory where the output of the run is written.
+     * @return the result of the run as a single line JSON object.
+     */
+    private static String runCase(BenchCase benchCase, int run, Path workDir) throws IOException, InterruptedException {
+        Path output = workDir.resolve(benchCase.name + "-run" + run + ".out.txt");
+        Files.deleteIfExists(output);
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(javaBin, "-Dfile.encoding=UTF-8",
+                "-cp", System.getProperty("java.class.path"), ThroughputBenchmark.class.getName(),
+                "--child", benchCase.input.toString(), output.toString());
+        builder.redirectErrorStream(true);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        String stats = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(STATS_PREFIX)) {
+                    stats = line.substring(STATS_PREFIX.length()).trim();
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        long processNanos = System.nanoTime() - start;
+
+        long lines = countLines(benchCase.input);
+        StringBuilder json = new StringBuilder();
+        json.append("{\"case\":\"").append(benchCase.name).append("\"");
+        json.append(",\"run\":").append(run);
+        json.append(",\"inputLines\":").append(lines);
+        json.append(",\"processWallMs\":").append(String.format(Locale.US, "%.3f", processNanos / 1e6));
+
+        if (exitCode != 0 || stats == null) {
+            json.append(",\"status\":\"FAILED\",\"exitCode\":").append(exitCode).append("}");
+            return json.toString();
+        }
+
+        String[] values = stats.split(" ");
+        long wallNanos = Long.parseLong(values[0]);
+        long gcMillis = Long.parseLong(values[1]);
+        long allocatedBytes = Long.parseLong(values[2]);
+        long peakRssKb = Long.parseLong(values[3]);
+        double wallSeconds = wallNanos / 1e9;
+
+        json.append(",\"wallMs\":").append(String.format(Locale.US, "%.3f", wallNanos / 1e6));
+        json.append(",\"linesPerSecond\":").append(String.format(Locale.US, "%.1f", lines / wallSeconds));
+        json.append(",\"gcMs\":").append(gcMillis);
+        json.append(",\"allocatedBytes\":").append(allocatedBytes);
+        json.append(",\"allocationMBPerSecond\":").append(String.format(Locale.US, "%.2f", allocatedBytes / 1048576.0 / wallSeconds));
+        json.append(",\"peakRssKb\":").append(peakRssKb);
+        json.append(",\"status\":\"").append(verify(output, benchCase.golden)).append("\"}");
+        return json.toString();
+    }
+
+    /**
+     * Lets the given number of threads buy every seat of one voyage of a shared booking system, each in its own random order,
+     * and reports the attempted sales per second. Exactly one sale of every seat must succeed, and every buyer must get one
+     * result line per attempted sale, in its own order, which either sells the seat it asked for or reports it as sold. The
+     * number of sales that were applied by another buyer's thread shows how much the sales were combined.
+     *
+     * @param threads number of buying threads.
+     * @param workDir the directory where the output of every buyer is written.
+     * @return the result as a single line JSON object.
+     */
+    private static String flashSale(int threads, Path workDir) throws IOException, InterruptedException {
+        BookingSystem system = new BookingSystem();
+        StandardBus bus = new StandardBus(1, "Ankara", "\u0130stanbul", 2500, 350, 10);
+        BookingSystem.runWith(system, () -> BookingSystem.addBus(bus));
+        int seats = bus.getCapacity();
+        Files.createDirectories(workDir);
+        Thread[] buyers = new Thread[threads];
+        String[] outputs = new String[threads];
+        int[][] orders = new int[threads][];
+        for (int t = 0; t < threads; t++) {
+            outputs[t] = workDir.resolve("buyer-" + t + ".txt").toString();
+            Files.deleteIfExists(Paths.get(outputs[t]));
+            String[] buyerArgs = {"", outputs[t]};
+            Random random = new Random(t);
+            int[] order = new int[seats];
+            for (int i = 0; i < seats; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i + 1;
+            }
+            orders[t] = order;
+            buyers[t] = new Thread(() -> BookingSystem.runWith(system, () -> {
+                for (int seat : order) {
+                    SellTicket.seller(1, Integer.toString(seat), buyerArgs);
+                }
+                FileOutput.close(buyerArgs[1]);
+            }));
+        }
+
+        long start = System.nanoTime();
+        for (Thread buyer : buyers) {
+            buyer.start();
+        }
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        long sold = 0;
+        long wrongResults = 0;
+        BitSet soldSeats = new BitSet(seats);
+        for (int t = 0; t < threads; t++) {
+            List<String> results = Files.readAllLines(Paths.get(outputs[t]), StandardCharsets.UTF_8);
+            wrongResults += Math.abs(results.size() - seats);
+            for (int i = 0; i < Math.min(seats, results.size()); i++) {
+                String result = results.get(i);
+                if (result.equals("Seat " + orders[t][i] + " of the Voyage 1 from Ankara to \u0130stanbul was successfully sold for 350.00 TL.")
+                        && !soldSeats.get(orders[t][i])) {
+                    soldSeats.set(orders[t][i]);
+                    sold++;
+                } else if (!result.equals("ERROR: One or more seats already sold!")) {
+                    wrongResults++;
+                }
+            }
+        }
+        long attempts = (long) threads * seats;
+        SaleCombiner combiner = bus.getSaleCombiner(false);
+        long combined = combiner == null ? 0 : combiner.getCombinedSales();
+        boolean consistent = wrongResults == 0 && sold == seats && bus.getSoldRegularSeats() == seats && bus.getRevenue() == 350.0 * seats;
+        return String.format(Locale.US, "{\"case\":\"flash-sale\",\"threads\":%d,\"seats\":%d,\"attempts\":%d,\"sold\":%d,\"wrongResults\":%d,\"combinedSales\":%d,\"wallMs\":%.3f,\"salesPerSecond\":%.1f,\"status\":\"%s\"}",
+                threads, seats, attempts, sold, wrongResults, combined, wallNanos / 1e6, attempts / (wallNanos / 1e9), consistent ? "MATCH" : "MISMATCH");
+    }
+
+    /**
+     * Initializes the given number of voyages of mixed types through the commands of a file run and sells a few seats of
+     * each, once on a booking system that moves idle voyages into its {@code VoyageStore} and once on one that keeps every
+     * voyage as a {@code Bus}, and reports the footprint of the store and the heap used per voyage in both runs.
+     *
+     * @param voyages number of voyages to initialize.
+     * @param workDir the directory where the output of the commands is written.
+     * @return the footprint as a single line JSON object.
+     */
+    private static String footprint(int voyages, Path workDir) throws IOException {
+        Files.createDirectories(workDir);
+        String[] footprintArgs = {"", workDir.resolve("footprint.out.txt").toString()};
+        long[] heapBytes = new long[2];
+        VoyageStore[] stores = new VoyageStore[2];
+        for (int pass = 0; pass < 2; pass++) {
+            Files.deleteIfExists(Paths.get(footprintArgs[1]));
+            long before = usedHeap();
+            BookingSystem system = new BookingSystem();
+            if (pass == 0) {
+                system.useVoyageStore();
+            }
+            int run = pass;
+            BookingSystem.runWith(system, () -> {
+                Random random = new Random(voyages);
+                for (int id = 1; id <= voyages; id++) {
+                    String from = CITIES[random.nextInt(CITIES.length)];
+                    String to = CITIES[random.nextInt(CITIES.length)];
+                    int rows = 5 + random.nextInt(11);
+                    switch (id % 3) {
+                        case 0:
+                            BusOperation.execute("INIT_VOYAGE	Standard	" + id + "	" + from + "	" + to + "	" + rows + "	350	10", footprintArgs);
+                            break;
+                        case 1:
+                            BusOperation.execute("INIT_VOYAGE	Premium	" + id + "	" + from + "	" + to + "	" + rows + "	850	25	20", footprintArgs);
+                            break;
+                        default:
+                            BusOperation.execute("INIT_VOYAGE	Minibus	" + id + "	" + from + "	" + to + "	" + rows + "	99.99", footprintArgs);
+                            break;
+                    }
+                    int first = 1 + random.nextInt(rows);
+                    BusOperation.execute("SELL_TICKET	" + id + "	" + first + "_" + (first + random.nextInt(4)), footprintArgs);
+                }
+                FileOutput.close(footprintArgs[1]);
+                stores[run] = BookingSystem.getVoyageStore();
+            });
+            heapBytes[pass] = usedHeap() - before;
+        }
+        Files.deleteIfExists(Paths.get(footprintArgs[1]));
+        VoyageStore store = stores[0];
+        return String.format(Locale.US, "{\"case\":\"footprint\",\"voyages\":%d,\"residentVoyages\":%d,\"storedVoyages\":%d,\"storeBytes\":%d,\"storeBytesPerVoyage\":%.1f,\"heapBytesPerVoyage\":%.1f,\"heapBytesPerVoyageWithoutStore\":%.1f}",
+                voyages, voyages - store.size(), store.size(), store.bytesUsed(), store.bytesPerVoyage(), (double) heapBytes[0] / voyages, (double) heapBytes[1] / voyages);
+    }
+
+    /**
+     * Returns the heap in use after a garbage collection.
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Runs a file that holds two seats for 300 seconds, sells another seat and then confirms the hold, in a child JVM whose
+     * clock is pinned to the given instant. Time stands still during the run, so the hold must still be pending when it is
+     * confirmed, however far the instant is from the wall clock.
+     *
+     * @param instant the instant the clock of the run is pinned to.
+     * @param workDir the directory where the input and output of the run are written.
+     * @return the result as a single line JSON object.
+     */
+    private static String clockCheck(String instant, Path workDir) throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        Path input = workDir.resolve("clock-check.txt");
+        Path output = workDir.resolve("clock-check-" + instant.replace(':', '-') + ".out.txt");
+        Files.write(input, ("INIT_VOYAGE\tStandard\t1\tAnkara\tSinop\t5\t100\t10\n"
+                + "HOLD_SEAT\t1\t4_5\t300\n"
+                + "SELL_TICKET\t1\t1\n"
+                + "CONFIRM_HOLD\t1\t4_5\t1\n").getBytes(StandardCharsets.UTF_8));
+        Files.deleteIfExists(output);
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(javaBin, "-Dfile.encoding=UTF-8", "-D" + BookingSystem.CLOCK_PROPERTY + "=" + instant,
+                "-cp", System.getProperty("java.class.path"), "BookingSystem", input.toString(), output.toString()).inheritIO().start();
+        boolean confirmed = process.waitFor() == 0 && Files.exists(output) && Files.readAllLines(output, StandardCharsets.UTF_8)
+                .contains("Seat 4-5 of the Voyage 1 from Ankara to Sinop was successfully sold for 200.00 TL.");
+        return String.format(Locale.US, "{\"case\":\"clock-check\",\"clock\":\"%s\",\"status\":\"%s\"}", instant, confirmed ? "MATCH" : "MISMATCH");
+    }
+
+    /**
+     * Follows a file in a child JVM whose only voyage departs three seconds after the file is written, with an idle timeout that
+     * ends follow mode a few seconds after the departure. No command arrives after the departure, so the voyage must be sealed
+     * while follow mode is idle, and the archive next to the output must hold its record.
+     *
+     * @param workDir the directory where the input, the output and the archive are written.
+     * @return the result as a single line JSON object.
+     */
+    private static String archiveCheck(Path workDir) throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        Path input = workDir.resolve("archive-check.txt");
+        Path output = workDir.resolve("archive-check.out.txt");
+        Path archive = workDir.resolve("archive-check.out.txt.departed.gz");
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(archive);
+        Instant departure = Instant.now().plusSeconds(3).truncatedTo(ChronoUnit.SECONDS);
+        Files.write(input, ("INIT_VOYAGE\tStandard\t1\tAnkara\tSinop\t5\t100\t10\t" + Departures.DEPARTURE_PREFIX + departure + "\n"
+                + "SELL_TICKET\t1\t1_2\n").getBytes(StandardCharsets.UTF_8));
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(javaBin, "-Dfile.encoding=UTF-8", "-cp", System.getProperty("java.class.path"),
+                "BookingSystem", "--follow", input.toString(), output.toString(), "50", "5000").inheritIO().start();
+        String expected = "1\tAnkara\tSinop\tStandard\t" + departure + "\t200.00\tXX******************";
+        boolean archived = false;
+        if (process.waitFor() == 0 && Files.exists(archive)) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+                archived = expected.equals(reader.readLine());
+            }
+        }
+        return String.format(Locale.US, "{\"case\":\"archive-check\",\"departure\":\"%s\",\"status\":\"%s\"}", departure, archived ? "MATCH" : "MISMATCH");
+    }
+
+    /**
+     * Runs a reference build over a generated input in a child JVM to produce its golden output.
+     *
+     * @param input     the generated input.
+     * @param golden    the path the golden output is written to.
+     * @param classpath the classes of the reference build.
+     * @return true if the reference build terminated normally and wrote the golden output.
+     */
+    private static boolean recordGolden(Path input, Path golden, String classpath) throws IOException, InterruptedException {
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Path recording = golden.resolveSibling(golden.getFileName() + ".tmp");
+        Files.deleteIfExists(recording);
+        Process process = new ProcessBuilder(javaBin, "-Dfile.encoding=UTF-8", "-cp", classpath, "BookingSystem",
+                input.toString(), recording.toString()).inheritIO().start();
+        if (process.waitFor() != 0 || !Files.exists(recording)) {
+            Files.deleteIfExists(recording);
+            return false;
+        }
+        Files.move(recording, golden);
+        return true;
+    }
+
+    /**
+     * Compares the produced output with the golden output byte by byte.
+     *
+     * @param output the output produced by the run.
+     * @param golden the golden output.
+     * @return {@code MATCH}, {@code MISMATCH}, or {@code UNVERIFIED} if there is no golden output.
+     */
+    private static String verify(Path output, Path golden) throws IOException {
+        if (!Files.exists(golden)) {
+            System.err.println("ERROR: There is no golden output " + golden + " to verify " + output + " against!");
+            return "UNVERIFIED";
+        }
+        byte[] produced = Files.readAllBytes(output);
+        byte[] expected = Files.readAllBytes(golden);
+        if (Arrays.equals(produced, expected)) {
+            return "MATCH";
+        }
+        List<String> producedLines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        List<String> expectedLines = Files.readAllLines(golden, StandardCharsets.UTF_8);
+        int line = 0;
+        while (line < producedLines.size() && line < expectedLines.size() && producedLines.get(line).equals(expectedLines.get(line))) {
+            line++;
+        }
+        System.err.println("ERROR: Output of " + output + " differs from " + golden + " at line " + (line + 1) + "!");
+        return "MISMATCH";
+    }
+
+    /**
+     * Runs the booking system once in the current JVM and prints the collected statistics to the standard output.
+     *
+     * @param input  path to the input file.
+     * @param output path to the output file.
+     */
+    private static void runChild(String input, String output) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long gcBefore = totalGcMillis();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        BookingSystem.main(new String[]{input, output});
+
+        long wallNanos = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        long gcMillis = totalGcMillis() - gcBefore;
+        System.out.println(STATS_PREFIX + " " + wallNanos + " " + gcMillis + " " + allocated + " " + peakRssKb());
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Reads the peak resident set size of the current process.
+     *
+     * @return peak RSS in kilobytes, or -1 if the platform does not expose it.
+     */
+    private static long peakRssKb() throws IOException {
+        File status = new File("/proc/self/status");
+        if (!status.canRead()) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status.toPath())) {
+            if (line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static long countLines(Path path) throws IOException {
+        return Files.readAllLines(path, StandardCharsets.UTF_8).size();
+    }
+
+    /**
+     * Writes a deterministic input file with a realistic mix of commands.
+     * Voyages of all three types are initialized first and then receive sales, refunds, prints, cancellations and occasional Z reports.
+     *
+     * @param path  path of the input file to write.
+     * @param lines number of command lines to generate.
+     * @param seed  seed of the random generator, so that the same size always produces the same file.
+     */
+    static void generateInput(Path path, int lines, long seed) throws IOException {
+        Random random = new Random(seed);
+        int voyages = Math.max(1, lines / 20);
+        StringBuilder content = new StringBuilder();
+        int[] capacity = new int[voyages + 1];
+        for (int id = 1; id <= voyages; id++) {
+            String from = CITIES[random.nextInt(CITIES.length)];
+            String to = CITIES[random.nextInt(CITIES.length)];
+            int rows = 5 + random.nextInt(11);
+            int price = 100 + random.nextInt(900);
+            switch (id % 3) {
+                case 0:
+                    content.append("INIT_VOYAGE\tStandard\t").append(id).append('\t').append(from).append('\t').append(to)
+                            .append('\t').append(rows).append('\t').append(price).append('\t').append(random.nextInt(50)).append('\n');
+                    capacity[id] = rows * 4;
+                    break;
+                case 1:
+                    content.append("INIT_VOYAGE\tPremium\t").append(id).append('\t').append(from).append('\t').append(to)
+                            .append('\t').append(rows).append('\t').append(price).append('\t').append(random.nextInt(50))
+                            .append('\t').append(random.nextInt(30)).append('\n');
+                    capacity[id] = rows * 3;
+                    break;
+                default:
+                    content.append("INIT_VOYAGE\tMinibus\t").append(id).append('\t').append(from).append('\t').append(to)
+                            .append('\t').append(rows).append('\t').append(price).append(".99\n");
+                    capacity[id] = rows * 2;
+                    break;
+            }
+        }
+        for (int i = voyages; i < lines; i++) {
+            int id = 1 + random.nextInt(voyages);
+            int roll = random.nextInt(1000);
+            if (roll < 600) {
+                content.append("SELL_TICKET\t").append(id).append('\t').append(seatList(random, capacity[id])).append('\n');
+            } else if (roll < 850) {
+                content.append("REFUND_TICKET\t").append(id).append('\t').append(seatList(random, capacity[id])).append('\n');
+            } else if (roll < 990) {
+                content.append("PRINT_VOYAGE\t").append(id).append('\n');
+            } else if (roll < 998) {
+                content.append("CANCEL_VOYAGE\t").append(id).append('\n');
+            } else {
+                content.append("Z_REPORT\n");
+            }
+        }
+        Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String seatList(Random random, int capacity) {
+        int count = 1 + random.nextInt(Math.min(4, capacity));
+        int first = random.nextInt(capacity - count + 1);
+        StringBuilder seats = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                seats.append('_');
+            }
+            seats.append(first + i + 1);
+        }
+        return seats.toString();
+    }
+}
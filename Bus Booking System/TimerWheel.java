@@ -0,0 +1,227 @@
+import java.util.function.Consumer;
+
+/**
+ * The {@code TimerWheel} class is a hierarchical timer wheel that schedules items to expire at a given time.
+ * Scheduling and cancelling take constant time, and advancing the clock only visits the slots of the elapsed ticks, so a large
+ * number of outstanding timers expires in constant amortized time per timer without scanning them.
+ * Every level has 64 slots, each covering 64 times the span of a slot of the level below; timers that lie beyond the last level
+ * wait in an overflow list until the wheel comes around.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimerWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    /**
+     * A scheduled item, linked into the slot it currently waits in.
+     *
+     * @param <T> the type of the scheduled item
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long tick;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        private Timeout<T>[] bucket;
+        private int slot;
+
+        private Timeout(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+
+    private final long tickMillis;
+    private final Timeout<T>[][] wheels;
+    private final Timeout<T>[] overflow;
+    private final Timeout<T>[] due;
+    private long currentTick;
+    private int size = 0;
+
+    /**
+     * Creates a timer wheel whose clock starts at the given time.
+     *
+     * @param tickMillis the resolution of the wheel in milliseconds
+     * @param nowMillis  the current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.wheels = (Timeout<T>[][]) new Timeout<?>[LEVELS][SLOTS];
+        this.overflow = (Timeout<T>[]) new Timeout<?>[1];
+        this.due = (Timeout<T>[]) new Timeout<?>[1];
+    }
+
+    /**
+     * Schedules an item to expire at the given time. Items whose time has already come expire on the next advance.
+     *
+     * @param deadlineMillis the time at which the item expires, in milliseconds
+     * @param item           the item to schedule
+     * @return a handle that can be used to cancel the timer
+     */
+    public Timeout<T> schedule(long deadlineMillis, T item) {
+        Timeout<T> timeout = new Timeout<>(item, (deadlineMillis + tickMillis - 1) / tickMillis);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a timer so that it never expires. Cancelling an expired or cancelled timer has no effect.
+     *
+     * @param timeout the handle returned by {@link #schedule(long, Object)}
+     */
+    public void cancel(Timeout<T> timeout) {
+        if (timeout.bucket != null) {
+            unlink(timeout);
+            size--;
+        }
+    }
+
+    /**
+     * Moves the clock of the wheel forward and hands every item whose time has come to the given consumer.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @param expired   receives the expired items, tick by tick
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        expire(due, 0, expired);
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                return;
+            }
+            currentTick++;
+            for (int level = 1; level <= LEVELS; level++) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                if (level == LEVELS) {
+                    cascade(overflow, 0);
+                } else {
+                    cascade(wheels[level], (int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+                }
+            }
+            expire(wheels[0], (int) (currentTick & (SLOTS - 1)), expired);
+            expire(due, 0, expired);
+        }
+    }
+
+    /**
+     * Sets the clock of the wheel to the given time, which may also lie before its current time, and files every pending
+     * timer again relative to it. Timers keep their deadlines and their handles stay valid; those whose time has already come
+     * expire on the next advance.
+     *
+     * @param nowMillis the new current time in milliseconds
+     */
+    public void rebase(long nowMillis) {
+        Timeout<T> pending = null;
+        for (Timeout<T>[] wheel : wheels) {
+            pending = unlinkAll(wheel, pending);
+        }
+        pending = unlinkAll(overflow, pending);
+        pending = unlinkAll(due, pending);
+        currentTick = nowMillis / tickMillis;
+        while (pending != null) {
+            Timeout<T> next = pending.next;
+            insert(pending);
+            pending = next;
+        }
+    }
+
+    /**
+     * Takes every timer out of the slots of a bucket and chains it in front of the given list through its next link.
+     *
+     * @param bucket  the slots to empty
+     * @param pending the timers taken out so far
+     * @return the timers taken out, including those of the bucket
+     */
+    private Timeout<T> unlinkAll(Timeout<T>[] bucket, Timeout<T> pending) {
+        for (int slot = 0; slot < bucket.length; slot++) {
+            while (bucket[slot] != null) {
+                Timeout<T> timeout = bucket[slot];
+                unlink(timeout);
+                timeout.next = pending;
+                pending = timeout;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the number of timers that have neither expired nor been cancelled.
+     *
+     * @return the number of pending timers
+     */
+    public int size() {
+        return size;
+    }
+
+    private void insert(Timeout<T> timeout) {
+        long delta = timeout.tick - currentTick;
+        if (delta <= 0) {
+            link(timeout, due, 0);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                link(timeout, wheels[level], (int) ((timeout.tick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+                return;
+            }
+        }
+        link(timeout, overflow, 0);
+    }
+
+    private void cascade(Timeout<T>[] bucket, int slot) {
+        Timeout<T> timeout = bucket[slot];
+        bucket[slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.bucket = null;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private void expire(Timeout<T>[] bucket, int slot, Consumer<T> expired) {
+        while (bucket[slot] != null) {
+            Timeout<T> timeout = bucket[slot];
+            unlink(timeout);
+            size--;
+            expired.accept(timeout.item);
+        }
+    }
+
+    private void link(Timeout<T> timeout, Timeout<T>[] bucket, int slot) {
+        timeout.bucket = bucket;
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = bucket[slot];
+        if (bucket[slot] != null) {
+            bucket[slot].previous = timeout;
+        }
+        bucket[slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            timeout.bucket[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.bucket = null;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
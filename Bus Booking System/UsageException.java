@@ -0,0 +1,23 @@
+/**
+ * The {@code UsageException} class signals that the booking system cannot run with the given command line arguments,
+ * for example because the input file cannot be read or the output file cannot be created.
+ * The stand-alone program reports it and terminates, whereas batch processing only fails the affected file.
+ */
+public class UsageException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private static final String TERMINATION = " Program is going to terminate!";
+
+    public UsageException(String message) {
+        super(message);
+    }
+
+    /**
+     * Returns the message without the announcement that the program terminates, for callers that go on.
+     *
+     * @return the reason the booking system cannot run.
+     */
+    public String getReason() {
+        String message = getMessage();
+        return message.endsWith(TERMINATION) ? message.substring(0, message.length() - TERMINATION.length()) : message;
+    }
+}
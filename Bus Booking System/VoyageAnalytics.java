@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The {@code VoyageAnalytics} class keeps the revenue and occupancy of every voyage of a booking system in structures that are
+ * updated whenever a voyage publishes a new version, so that rankings and ID range totals never have to visit every voyage.
+ * Two ordered sets rank the voyages by revenue and by occupancy, and a sparse segment tree over the voyage IDs keeps the number
+ * of voyages, sold seats and revenue of every ID range. Updates and range queries take logarithmic time, and the top n voyages
+ * are found in time proportional to n plus a logarithm.
+ */
+public class VoyageAnalytics {
+    /**
+     * Orders voyages from the highest revenue to the lowest, and by ID when revenues are equal.
+     */
+    public static final Comparator<Entry> BY_REVENUE = (a, b) -> {
+        int order = Double.compare(b.revenue, a.revenue);
+        return order != 0 ? order : Integer.compare(a.id, b.id);
+    };
+
+    /**
+     * Orders voyages from the highest share of sold seats to the lowest, and by ID when shares are equal.
+     */
+    public static final Comparator<Entry> BY_OCCUPANCY = (a, b) -> {
+        int order = Long.compare((long) b.soldSeats * a.capacity, (long) a.soldSeats * b.capacity);
+        return order != 0 ? order : Integer.compare(a.id, b.id);
+    };
+
+    private static final int ROOT = 1;
+    private static final int MIN_ID = 1;
+    private static final int MAX_ID = Integer.MAX_VALUE;
+
+    /**
+     * The figures of a voyage at the time of its last update.
+     */
+    public static final class Entry {
+        private final int id;
+        private final String from;
+        private final String to;
+        private final double revenue;
+        private final int soldSeats;
+        private final int capacity;
+
+        public Entry(int id, String from, String to, double revenue, int soldSeats, int capacity) {
+            this.id = id;
+            this.from = from;
+            this.to = to;
+            this.revenue = revenue;
+            this.soldSeats = soldSeats;
+            this.capacity = capacity;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+
+        public int getSoldSeats() {
+            return soldSeats;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+    }
+
+    /**
+     * The totals of the voyages whose IDs lie in a range.
+     */
+    public static final class Aggregate {
+        private final int voyages;
+        private final long soldSeats;
+        private final double revenue;
+
+        public Aggregate(int voyages, long soldSeats, double revenue) {
+            this.voyages = voyages;
+            this.soldSeats = soldSeats;
+            this.revenue = revenue;
+        }
+
+        public int getVoyages() {
+            return voyages;
+        }
+
+        public long getSoldSeats() {
+            return soldSeats;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+    }
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byRevenue = new TreeSet<>(BY_REVENUE);
+    private final TreeSet<Entry> byOccupancy = new TreeSet<>(BY_OCCUPANCY);
+
+    // The nodes of the segment tree over the IDs; node 0 stands for an empty subtree and nodes are created on first use.
+    private int nodes = 2;
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int[] voyageCounts = new int[64];
+    private long[] soldCounts = new long[64];
+    private double[] revenues = new double[64];
+
+    /**
+     * Records the current figures of a voyage, replacing the previous ones.
+     *
+     * @param bus the voyage
+     */
+    public synchronized void update(Bus bus) {
+        Entry entry = new Entry(bus.getId(), bus.getFrom(), bus.getTo(), bus.getRevenue(),
+                bus.getSoldRegularSeats() + bus.getSoldPremiumSeats(), bus.getCapacity());
+        Entry previous = entries.get(entry.id);
+        if (previous != null) {
+            if (Double.compare(previous.revenue, entry.revenue) == 0 && previous.soldSeats == entry.soldSeats) {
+                return;
+            }
+            byRevenue.remove(previous);
+            byOccupancy.remove(previous);
+        }
+        entries.put(entry.id, entry);
+        byRevenue.add(entry);
+        byOccupancy.add(entry);
+        set(entry.id, 1, entry.soldSeats, entry.revenue);
+    }
+
+    /**
+     * Forgets a voyage that has been cancelled.
+     *
+     * @param id the ID of the voyage
+     */
+    public synchronized void remove(int id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            byRevenue.remove(previous);
+            byOccupancy.remove(previous);
+            set(id, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Returns the voyages with the highest revenue.
+     *
+     * @param count the largest number of voyages to return
+     * @return at most {@code count} voyages, ordered by {@link #BY_REVENUE}
+     */
+    public synchronized List<Entry> topByRevenue(int count) {
+        return first(byRevenue, count);
+    }
+
+    /**
+     * Returns the voyages with the highest share of sold seats.
+     *
+     * @param count the largest number of voyages to return
+     * @return at most {@code count} voyages, ordered by {@link #BY_OCCUPANCY}
+     */
+    public synchronized List<Entry> topByOccupancy(int count) {
+        return first(byOccupancy, count);
+    }
+
+    /**
+     * Returns the number of voyages, sold seats and revenue of the voyages whose IDs lie in a range.
+     *
+     * @param fromId the first ID of the range
+     * @param toId   the last ID of the range
+     * @return the totals of the range
+     */
+    public synchronized Aggregate range(int fromId, int toId) {
+        int[] voyageCount = new int[1];
+        long[] soldCount = new long[1];
+        double[] revenue = new double[1];
+        query(ROOT, MIN_ID, MAX_ID, fromId, toId, voyageCount, soldCount, revenue);
+        return new Aggregate(voyageCount[0], soldCount[0], revenue[0]);
+    }
+
+    private static List<Entry> first(TreeSet<Entry> ranking, int count) {
+        List<Entry> top = new ArrayList<>(Math.min(count, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    /**
+     * Stores the figures of a single ID in its leaf and recomputes the totals on the path to the root.
+     */
+    private void set(int id, int voyageCount, long soldCount, double revenue) {
+        int[] path = new int[32];
+        int depth = 0;
+        int node = ROOT;
+        int low = MIN_ID;
+        int high = MAX_ID;
+        while (low < high) {
+            path[depth++] = node;
+            int middle = low + (high - low) / 2;
+            if (id <= middle) {
+                if (left[node] == 0) {
+                    int child = newNode();
+                    left[node] = child;
+                }
+                node = left[node];
+                high = middle;
+            } else {
+                if (right[node] == 0) {
+                    int child = newNode();
+                    right[node] = child;
+                }
+                node = right[node];
+                low = middle + 1;
+            }
+        }
+        voyageCounts[node] = voyageCount;
+        soldCounts[node] = soldCount;
+        revenues[node] = revenue;
+        while (depth > 0) {
+            node = path[--depth];
+            voyageCounts[node] = voyageCounts[left[node]] + voyageCounts[right[node]];
+            soldCounts[node] = soldCounts[left[node]] + soldCounts[right[node]];
+            revenues[node] = revenues[left[node]] + revenues[right[node]];
+        }
+    }
+
+    private void query(int node, int low, int high, int fromId, int toId, int[] voyageCount, long[] soldCount, double[] revenue) {
+        if (node == 0 || toId < low || high < fromId) {
+            return;
+        }
+        if (fromId <= low && high <= toId) {
+            voyageCount[0] += voyageCounts[node];
+            soldCount[0] += soldCounts[node];
+            revenue[0] += revenues[node];
+            return;
+        }
+        int middle = low + (high - low) / 2;
+        query(left[node], low, middle, fromId, toId, voyageCount, soldCount, revenue);
+        query(right[node], middle + 1, high, fromId, toId, voyageCount, soldCount, revenue);
+    }
+
+    private int newNode() {
+        if (nodes == left.length) {
+            int capacity = nodes * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            voyageCounts = Arrays.copyOf(voyageCounts, capacity);
+            soldCounts = Arrays.copyOf(soldCounts, capacity);
+            revenues = Arrays.copyOf(revenues, capacity);
+        }
+        return nodes++;
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@code VoyageExport} class handles the {@code EXPORT path} command, which writes every voyage to a compact columnar
+ * binary file that {@code VoyageExportReader} loads without parsing any report text. Files whose path ends with ".gz" are
+ * written as a gzip stream.
+ *
+ * <p>The voyages are read from a snapshot of the booking system, so the export is consistent even while tickets are sold,
+ * and they are streamed in blocks of at most {@value #BLOCK_SIZE} voyages, so no copy of all voyages is ever built.
+ *
+ * <p>The file starts with the magic number "BBEX" and the format version, followed by the blocks and a block count of 0.
+ * All numbers are big-endian and strings are in modified UTF-8, as written by {@link DataOutputStream}. A block holds:
+ * <ul>
+ *     <li>the number of voyages n,</li>
+ *     <li>the bus type names and the city names the block refers to, each preceded by their count,</li>
+ *     <li>the columns: n voyage IDs (int), n bus types (byte, index into the type names), n departure and n arrival cities
+ *     (int, index into the city names), n prices (double), n revenues (double) and n capacities (int),</li>
+ *     <li>the seat bitmaps of the voyages one after another, each taking capacity / 64 longs rounded up, where bit i % 64 of
+ *     long i / 64 is set if seat i + 1 is sold.</li>
+ * </ul>
+ * Blocks carry their own dictionaries, so the blocks of several exports can be concatenated.
+ */
+public class VoyageExport {
+    public static final int MAGIC = 0x42424558;
+    public static final int FORMAT_VERSION = 1;
+    public static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Receives the encoded blocks of an export.
+     */
+    interface BlockSink {
+        void write(byte[] block) throws IOException;
+    }
+
+    /**
+     * Executes an EXPORT command on the booking system of the calling thread and writes its result.
+     *
+     * @param parts the fields of the command
+     * @param args  Command-line arguments used for specifying output paths for logging.
+     */
+    public static void export(String[] parts, String[] args) {
+        FileOutput.writeToFile(args[1], "COMMAND: " + String.join("\t", parts), true, true);
+        if (parts.length != 2 || parts[1].isEmpty()) {
+            FileOutput.writeToFile(args[1], "ERROR: Erroneous usage of \"EXPORT\" command!", true, true);
+            return;
+        }
+        int voyages;
+        try (DataOutputStream file = open(parts[1]);
+             BookingSystem.Snapshot snapshot = BookingSystem.openSnapshot()) {
+            voyages = writeBlocks(snapshot, file::write);
+            close(file);
+        } catch (IOException e) {
+            FileOutput.writeToFile(args[1], "ERROR: Voyages cannot be exported to " + parts[1] + "!", true, true);
+            return;
+        }
+        printExported(voyages, parts[1], args);
+    }
+
+    /**
+     * Writes the line that reports a successful export.
+     *
+     * @param voyages the number of exported voyages
+     * @param path    the path of the export file
+     * @param args    Command-line arguments used for specifying output paths for logging.
+     */
+    static void printExported(int voyages, String path, String[] args) {
+        FileOutput.writeToFile(args[1], voyages + (voyages == 1 ? " voyage was" : " voyages were") + " exported to " + path + ".", true, true);
+    }
+
+    /**
+     * Creates an export file and writes its header.
+     *
+     * @param path the path of the export file
+     * @return the stream the blocks are written to
+     */
+    static DataOutputStream open(String path) throws IOException {
+        OutputStream stream = Files.newOutputStream(Paths.get(path));
+        if (path.endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, 64 * 1024);
+        }
+        DataOutputStream file = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        file.writeInt(MAGIC);
+        file.writeInt(FORMAT_VERSION);
+        return file;
+    }
+
+    /**
+     * Writes the block count of 0 that ends an export file. The stream still has to be closed.
+     *
+     * @param file the stream returned by {@link #open(String)}
+     */
+    static void close(DataOutputStream file) throws IOException {
+        file.writeInt(0);
+    }
+
+    /**
+     * Encodes voyages into blocks.
+     *
+     * @param voyages the voyages to export
+     * @param sink    receives every block as soon as it is full, and the last block
+     * @return the number of exported voyages
+     */
+    static int writeBlocks(Iterable<VoyageSnapshot> voyages, BlockSink sink) throws IOException {
+        Block block = new Block();
+        int exported = 0;
+        for (VoyageSnapshot voyage : voyages) {
+            block.add(voyage);
+            exported++;
+            if (block.size == BLOCK_SIZE) {
+                sink.write(block.encode());
+                block = new Block();
+            }
+        }
+        if (block.size > 0) {
+            sink.write(block.encode());
+        }
+        return exported;
+    }
+
+    /**
+     * The columns of the voyages of one block, filled in while the snapshot is iterated.
+     */
+    private static final class Block {
+        private int size = 0;
+        private final int[] ids = new int[BLOCK_SIZE];
+        private final byte[] types = new byte[BLOCK_SIZE];
+        private final int[] fromCities = new int[BLOCK_SIZE];
+        private final int[] toCities = new int[BLOCK_SIZE];
+        private final double[] prices = new double[BLOCK_SIZE];
+        private final double[] revenues = new double[BLOCK_SIZE];
+        private final int[] capacities = new int[BLOCK_SIZE];
+        private long[] seatWords = new long[BLOCK_SIZE];
+        private int usedSeatWords = 0;
+        private final Map<String, Integer> typeIds = new HashMap<>();
+        private final Map<String, Integer> cityIds = new HashMap<>();
+        private String[] typeNames = new String[4];
+        private String[] cityNames = new String[64];
+
+        void add(VoyageSnapshot voyage) {
+            Bus bus = voyage.getBus();
+            int row = size++;
+            ids[row] = voyage.getId();
+            types[row] = (byte) typeId(bus.getLayout().getName());
+            fromCities[row] = cityId(bus.getFrom());
+            toCities[row] = cityId(bus.getTo());
+            prices[row] = bus.getPrice();
+            revenues[row] = voyage.getRevenue();
+            int capacity = voyage.getCapacity();
+            capacities[row] = capacity;
+            int words = (capacity + 63) >>> 6;
+            if (usedSeatWords + words > seatWords.length) {
+                seatWords = Arrays.copyOf(seatWords, Math.max(seatWords.length * 2, usedSeatWords + words));
+            }
+            for (int seat = 0; seat < capacity; seat++) {
+                if (voyage.isSold(seat)) {
+                    seatWords[usedSeatWords + (seat >>> 6)] |= 1L << seat;
+                }
+            }
+            usedSeatWords += words;
+        }
+
+        private int typeId(String type) {
+            Integer id = typeIds.get(type);
+            if (id == null) {
+                id = typeIds.size();
+                if (id > Byte.MAX_VALUE) {
+                    throw new IllegalStateException("a block cannot refer to more than " + (Byte.MAX_VALUE + 1) + " bus types");
+                }
+                if (id == typeNames.length) {
+                    typeNames = Arrays.copyOf(typeNames, id * 2);
+                }
+                typeNames[id] = type;
+                typeIds.put(type, id);
+            }
+            return id;
+        }
+
+        private int cityId(String city) {
+            Integer id = cityIds.get(city);
+            if (id == null) {
+                id = cityIds.size();
+                if (id == cityNames.length) {
+                    cityNames = Arrays.copyOf(cityNames, id * 2);
+                }
+                cityNames[id] = city;
+                cityIds.put(city, id);
+            }
+            return id;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(size * 40 + usedSeatWords * 8 + 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(size);
+            out.writeInt(typeIds.size());
+            for (int i = 0; i < typeIds.size(); i++) {
+                out.writeUTF(typeNames[i]);
+            }
+            out.writeInt(cityIds.size());
+            for (int i = 0; i < cityIds.size(); i++) {
+                out.writeUTF(cityNames[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(ids[i]);
+            }
+            out.write(types, 0, size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(fromCities[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(toCities[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(prices[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(revenues[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(capacities[i]);
+            }
+            for (int i = 0; i < usedSeatWords; i++) {
+                out.writeLong(seatWords[i]);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The {@code VoyageExportReader} class reads the files written by the {@code EXPORT} command block by block, as described in
+ * {@link VoyageExport}. Every block is loaded into plain arrays, one per column, so analyses can work on them directly.
+ *
+ * <p>Run on its own, it prints one tab separated line per voyage with its ID, bus type, departure and arrival city, price,
+ * revenue, number of sold seats and capacity.
+ *
+ * <p>Sample usage: {@code java VoyageExportReader export.bin}
+ */
+public class VoyageExportReader implements AutoCloseable {
+    /**
+     * The voyages of one block of an export file.
+     */
+    public static final class Block {
+        private final int size;
+        private final String[] typeNames;
+        private final String[] cityNames;
+        private final int[] ids;
+        private final byte[] types;
+        private final int[] fromCities;
+        private final int[] toCities;
+        private final double[] prices;
+        private final double[] revenues;
+        private final int[] capacities;
+        private final int[] seatOffsets;
+        private final long[] seatWords;
+
+        private Block(DataInputStream in, int size) throws IOException {
+            this.size = size;
+            typeNames = readStrings(in);
+            cityNames = readStrings(in);
+            ids = readInts(in, size);
+            types = new byte[size];
+            in.readFully(types);
+            fromCities = readInts(in, size);
+            toCities = readInts(in, size);
+            prices = readDoubles(in, size);
+            revenues = readDoubles(in, size);
+            capacities = readInts(in, size);
+            seatOffsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                seatOffsets[i + 1] = seatOffsets[i] + ((capacities[i] + 63) >>> 6);
+            }
+            seatWords = new long[seatOffsets[size]];
+            for (int i = 0; i < seatWords.length; i++) {
+                seatWords[i] = in.readLong();
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getId(int row) {
+            return ids[row];
+        }
+
+        public String getType(int row) {
+            return typeNames[types[row]];
+        }
+
+        public String getFrom(int row) {
+            return cityNames[fromCities[row]];
+        }
+
+        public String getTo(int row) {
+            return cityNames[toCities[row]];
+        }
+
+        public double getPrice(int row) {
+            return prices[row];
+        }
+
+        public double getRevenue(int row) {
+            return revenues[row];
+        }
+
+        public int getCapacity(int row) {
+            return capacities[row];
+        }
+
+        /**
+         * Tells whether a seat of a voyage was sold when the export was taken.
+         *
+         * @param row   the row of the voyage in the block
+         * @param index the zero based index of the seat
+         * @return true if the seat was sold
+         */
+        public boolean isSold(int row, int index) {
+            return (seatWords[seatOffsets[row] + (index >>> 6)] & (1L << index)) != 0;
+        }
+
+        /**
+         * Counts the sold seats of a voyage.
+         *
+         * @param row the row of the voyage in the block
+         * @return the number of sold seats
+         */
+        public int getSoldSeats(int row) {
+            int sold = 0;
+            for (int i = seatOffsets[row]; i < seatOffsets[row + 1]; i++) {
+                sold += Long.bitCount(seatWords[i]);
+            }
+            return sold;
+        }
+    }
+
+    private final DataInputStream in;
+    private boolean finished = false;
+
+    /**
+     * Opens an export file and checks its header.
+     *
+     * @param path the path of the export file, which is read as a gzip stream if it ends with ".gz"
+     * @throws IOException if the file cannot be read or is not an export file of a known version
+     */
+    public VoyageExportReader(String path) throws IOException {
+        InputStream stream = Files.newInputStream(Paths.get(path));
+        if (path.endsWith(".gz")) {
+            stream = new GZIPInputStream(stream, 64 * 1024);
+        }
+        in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        try {
+            if (in.readInt() != VoyageExport.MAGIC) {
+                throw new IOException(path + " is not a voyage export");
+            }
+            int version = in.readInt();
+            if (version != VoyageExport.FORMAT_VERSION) {
+                throw new IOException(path + " has format version " + version + ", which is not supported");
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next block of the file.
+     *
+     * @return the next block, or null after the last one
+     * @throws IOException if the file cannot be read or ends too early
+     */
+    public Block next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int size = in.readInt();
+        if (size == 0) {
+            finished = true;
+            return null;
+        }
+        return new Block(in, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Prints the voyages of an export file.
+     *
+     * @param args the path of the export file
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("ERROR: The path to an export file must be given. Sample usage can be as follows: \"java VoyageExportReader export.bin\". Program is going to terminate!");
+            System.exit(1);
+        }
+        StringBuilder lines = new StringBuilder();
+        try (VoyageExportReader reader = new VoyageExportReader(args[0])) {
+            for (Block block = reader.next(); block != null; block = reader.next()) {
+                for (int row = 0; row < block.size(); row++) {
+                    lines.append(block.getId(row)).append('\t').append(block.getType(row)).append('\t')
+                            .append(block.getFrom(row)).append('\t').append(block.getTo(row)).append('\t')
+                            .append(String.format(Locale.US, "%.2f\t%.2f", block.getPrice(row), block.getRevenue(row))).append('\t')
+                            .append(block.getSoldSeats(row)).append('\t').append(block.getCapacity(row)).append('\n');
+                }
+                System.out.print(lines);
+                lines.setLength(0);
+            }
+        } catch (EOFException e) {
+            System.err.println("ERROR: " + args[0] + " ends too early. Program is going to terminate!");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage() + ". Program is going to terminate!");
+            System.exit(1);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.List;
+import java.util.Locale;
+import jdk.jfr.FlightRecorder;
+/**
+ * The {@code VoyageRanking} class handles the analytics commands of the booking system:
+ * {@code TOP_REVENUE n} and {@code TOP_OCCUPANCY n} list the n voyages with the highest revenue or share of sold seats, and
+ * {@code RANGE_REPORT a b} sums the voyages, sold seats and revenue of the voyages whose IDs lie between a and b.
+ * The figures come from the {@code VoyageAnalytics} of the booking system, so no command has to visit every voyage.
+ */
+public class VoyageRanking {
+    /**
+     * Tells whether a command is one of the analytics commands.
+     *
+     * @param command the name of the command
+     * @return true for TOP_REVENUE, TOP_OCCUPANCY and RANGE_REPORT
+     */
+    public static boolean isQuery(String command) {
+        return command.equals("TOP_REVENUE") || command.equals("TOP_OCCUPANCY") || command.equals("RANGE_REPORT");
+    }
+
+    /**
+     * Validates an analytics command without executing it.
+     *
+     * @param parts the fields of the command
+     * @return the error message to write, or null if the command is valid
+     */
+    public static String validate(String[] parts) {
+        if (parts[0].equals("RANGE_REPORT")) {
+            if (parts.length != 3) {
+                return "ERROR: Erroneous usage of \"RANGE_REPORT\" command!";
+            }
+            String error = checkPositive(parts[1], "ID of a voyage");
+            if (error == null) {
+                error = checkPositive(parts[2], "ID of a voyage");
+            }
+            if (error == null && Integer.parseInt(parts[1]) > Integer.parseInt(parts[2])) {
+                error = "ERROR: " + parts[1] + " is greater than " + parts[2] + ", the first ID of a range must not be greater than the last one!";
+            }
+            return error;
+        }
+        if (parts.length != 2) {
+            return "ERROR: Erroneous usage of \"" + parts[0] + "\" command!";
+        }
+        return checkPositive(parts[1], "number of voyages");
+    }
+
+    /**
+     * Executes a valid or invalid analytics command on the booking system of the calling thread and writes its result.
+     *
+     * @param parts the fields of the command
+     * @param args  Command-line arguments used for specifying output paths for logging.
+     */
+    public static void query(String[] parts, String[] args) {
+        String error = validate(parts);
+        if (error != null) {
+            FileOutput.writeToFile(args[1], error, true, true);
+            return;
+        }
+        ReportEvent event = FlightRecorder.isInitialized() ? new ReportEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        VoyageAnalytics analytics = BookingSystem.getAnalytics();
+        int voyages;
+        switch (parts[0]) {
+            case "TOP_REVENUE":
+                List<VoyageAnalytics.Entry> byRevenue = analytics.topByRevenue(Integer.parseInt(parts[1]));
+                printTop(parts, byRevenue, args);
+                voyages = byRevenue.size();
+                break;
+            case "TOP_OCCUPANCY":
+                List<VoyageAnalytics.Entry> byOccupancy = analytics.topByOccupancy(Integer.parseInt(parts[1]));
+                printTop(parts, byOccupancy, args);
+                voyages = byOccupancy.size();
+                break;
+            default:
+                VoyageAnalytics.Aggregate totals = analytics.range(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                printRange(parts, totals, args);
+                voyages = totals.getVoyages();
+                break;
+        }
+        if (event != null && event.shouldCommit()) {
+            event.report = parts[0];
+            event.voyages = voyages;
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the result of a TOP_REVENUE or TOP_OCCUPANCY command.
+     *
+     * @param parts   the fields of the command
+     * @param voyages the top voyages, in ranking order
+     * @param args    Command-line arguments used for specifying output paths for logging.
+     */
+    public static void printTop(String[] parts, List<VoyageAnalytics.Entry> voyages, String[] args) {
+        if (voyages.isEmpty()) {
+            FileOutput.writeToFile(args[1], "No Voyages Available!", true, true);
+            return;
+        }
+        boolean byRevenue = parts[0].equals("TOP_REVENUE");
+        StringBuilder ranking = new StringBuilder();
+        ranking.append(String.format(Locale.US, "Top %d voyages by %s:", voyages.size(), byRevenue ? "revenue" : "occupancy"));
+        int rank = 1;
+        for (VoyageAnalytics.Entry voyage : voyages) {
+            ranking.append('\n').append(String.format(Locale.US, "%d. Voyage %d from %s to %s: ", rank++, voyage.getId(), voyage.getFrom(), voyage.getTo()));
+            if (byRevenue) {
+                ranking.append(String.format(Locale.US, "%.2f TL", voyage.getRevenue()));
+            } else {
+                ranking.append(String.format(Locale.US, "%d of %d seats sold (%.2f%%)", voyage.getSoldSeats(), voyage.getCapacity(),
+                        100.0 * voyage.getSoldSeats() / voyage.getCapacity()));
+            }
+        }
+        FileOutput.writeToFile(args[1], ranking.toString(), true, true);
+    }
+
+    /**
+     * Writes the result of a RANGE_REPORT command.
+     *
+     * @param parts  the fields of the command
+     * @param totals the totals of the voyages in the range
+     * @param args   Command-line arguments used for specifying output paths for logging.
+     */
+    public static void printRange(String[] parts, VoyageAnalytics.Aggregate totals, String[] args) {
+        String report = String.format(Locale.US, "Voyages %d to %d: %d voyages, %d seats sold, %.2f TL revenue.",
+                Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), totals.getVoyages(), totals.getSoldSeats(), totals.getRevenue());
+        FileOutput.writeToFile(args[1], report, true, true);
+    }
+
+    private static String checkPositive(String value, String name) {
+        try {
+            if (Integer.parseInt(value) > 0) {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        return "ERROR: " + value + " is not a positive integer, " + name + " must be a positive integer!";
+    }
+}
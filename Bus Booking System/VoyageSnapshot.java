@@ -0,0 +1,104 @@
+/**
+ * The {@code VoyageSnapshot} class is an immutable version of the state of a voyage, as published by its {@code Bus} at the end
+ * of a command. Reports render snapshots instead of the live bus, so they see every voyage exactly as it was at the moment the
+ * report started, while sales and refunds keep changing the live state.
+ * Each snapshot links to the version it replaced for as long as an open report may still need it.
+ */
+public final class VoyageSnapshot {
+    private final Bus bus;
+    private final boolean[] seats;
+    private final int capacity;
+    private final SeatHold[] holds;
+    private final double revenue;
+    private final long version;
+    private final boolean retired;
+    private VoyageSnapshot previous;
+
+    /**
+     * Creates a snapshot. The arrays are taken over, so they must never be modified afterwards.
+     *
+     * @param bus      the bus the snapshot belongs to
+     * @param seats    the sold state of every seat, or an empty array if no seat has ever been sold
+     * @param capacity the number of seats
+     * @param holds    the hold of every seat, or null if no seat has ever been held
+     * @param revenue  the revenue of the voyage
+     * @param version  the version of the booking system the snapshot was published at
+     * @param retired  true if the voyage had been cancelled at this version
+     * @param previous the snapshot this one replaces, or null
+     */
+    VoyageSnapshot(Bus bus, boolean[] seats, int capacity, SeatHold[] holds, double revenue, long version, boolean retired, VoyageSnapshot previous) {
+        this.bus = bus;
+        this.seats = seats;
+        this.capacity = capacity;
+        this.holds = holds;
+        this.revenue = revenue;
+        this.version = version;
+        this.retired = retired;
+        this.previous = previous;
+    }
+
+    public Bus getBus() {
+        return bus;
+    }
+
+    public int getId() {
+        return bus.getId();
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isSold(int index) {
+        return index < seats.length && seats[index];
+    }
+
+    public boolean isHeld(int index) {
+        return holds != null && holds[index] != null;
+    }
+
+    VoyageSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Forgets the older versions, once no open report can need them anymore.
+     */
+    void dropPrevious() {
+        previous = null;
+    }
+
+    /**
+     * Returns the symbol that represents a seat in seat visualizations.
+     *
+     * @param index the zero based index of the seat
+     * @return 'X' for a sold seat, 'H' for a held seat and '*' for an empty seat
+     */
+    public char seatSymbol(int index) {
+        if (isSold(index)) {
+            return 'X';
+        }
+        return isHeld(index) ? 'H' : '*';
+    }
+
+    /**
+     * Renders the seat arrangement of the voyage as it was in this snapshot.
+     *
+     * @return a string representing the seating arrangement
+     */
+    public String visualizeSeats() {
+        return bus.visualizeSeats(this);
+    }
+}
@@ -0,0 +1,378 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code VoyageStore} class keeps idle voyages in a columnar layout instead of one object graph per voyage.
+ * Every attribute of a voyage lives in its own primitive array indexed by a slot number, bus types and city names are stored
+ * once in shared dictionaries and the seats of all voyages share a single bit region, so a stored voyage costs a few dozen
+ * bytes instead of a {@code Bus} with its lock, fare tables, seat array and published snapshot.
+ *
+ * <p>{@code Bus} objects are only created on demand as views of a slot. A view that is taken out of the store to be changed
+ * keeps its slot and seat bits, so it can be put back without allocating again once it is idle. All methods are synchronized,
+ * since threads other than the one running the commands may read views of stored voyages.
+ */
+public class VoyageStore {
+    private static final byte FREE = 0;
+    private static final byte STORED = 1;
+    private static final byte TAKEN = 2;
+
+    private int slots = 0;
+    private int storedVoyages = 0;
+    private int freeSlots = 0;
+    private int[] ids = new int[16];
+    private byte[] states = new byte[16];
+    private byte[] types = new byte[16];
+    private int[] rows = new int[16];
+    private int[] fromCities = new int[16];
+    private int[] toCities = new int[16];
+    private double[] prices = new double[16];
+    private double[] refundCuts = new double[16];
+    private double[] premiumFees = new double[16];
+    private double[] revenues = new double[16];
+    private int[] holdsIssued = new int[16];
+    private long[] versions = new long[16];
+    private long[] seatOffsets = new long[16];
+    private long[] seatBits = new long[64];
+    private long usedSeatBits = 0;
+
+    private int[] slotTable = newSlotTable(32);
+    private final List<SeatLayout> layouts = new ArrayList<>();
+    private final List<String> cities = new ArrayList<>();
+    private final Map<String, Integer> cityIds = new HashMap<>();
+
+    /**
+     * Copies the state of an idle bus into the store. The bus must no longer be used afterwards; it is read back with
+     * {@link #take(int)}.
+     *
+     * @param bus the bus to store, which must be {@link Bus#isStorable() storable}
+     */
+    public synchronized void put(Bus bus) {
+        int slot = slotOf(bus.getId());
+        if (slot < 0) {
+            slot = allocate(bus);
+        }
+        revenues[slot] = bus.getRevenue();
+        holdsIssued[slot] = bus.getHoldsIssued();
+        versions[slot] = bus.getVersion();
+        long offset = seatOffsets[slot];
+        for (int index = 0; index < bus.getCapacity(); index++) {
+            long bit = offset + index;
+            if (bus.isSold(index)) {
+                seatBits[(int) (bit >>> 6)] |= 1L << bit;
+            } else {
+                seatBits[(int) (bit >>> 6)] &= ~(1L << bit);
+            }
+        }
+        states[slot] = STORED;
+        storedVoyages++;
+    }
+
+    /**
+     * Takes a voyage out of the store so that it can be changed. Its slot is kept for when it is put back.
+     *
+     * @param id the ID of the voyage
+     * @return a view of the voyage, or null if the store does not hold a voyage with that ID
+     */
+    public synchronized Bus take(int id) {
+        int slot = slotOf(id);
+        if (slot < 0 || states[slot] != STORED) {
+            return null;
+        }
+        states[slot] = TAKEN;
+        storedVoyages--;
+        return viewOf(slot);
+    }
+
+    /**
+     * Creates a view of a stored voyage for reading. The voyage stays in the store, so changes made to the view are lost.
+     *
+     * @param id the ID of the voyage
+     * @return a view of the voyage, or null if the store does not hold a voyage with that ID
+     */
+    public synchronized Bus view(int id) {
+        int slot = slotOf(id);
+        return slot < 0 || states[slot] != STORED ? null : viewOf(slot);
+    }
+
+    /**
+     * Forgets a voyage that has been cancelled or has departed, whether it is stored or has been taken out.
+     *
+     * @param id the ID of the voyage
+     */
+    public synchronized void remove(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return;
+        }
+        if (states[slot] == STORED) {
+            storedVoyages--;
+        }
+        states[slot] = FREE;
+        freeSlots++;
+        unindex(id);
+        if (freeSlots > 64 && freeSlots * 2 > slots) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns the IDs of the stored voyages in ascending order, for reports that visit every voyage.
+     *
+     * @return a new array of IDs
+     */
+    public synchronized int[] storedIds() {
+        int[] stored = new int[storedVoyages];
+        int count = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (states[slot] == STORED) {
+                stored[count++] = ids[slot];
+            }
+        }
+        Arrays.sort(stored);
+        return stored;
+    }
+
+    /**
+     * Returns the number of voyages in the store, not counting those that have been taken out.
+     *
+     * @return the number of stored voyages
+     */
+    public synchronized int size() {
+        return storedVoyages;
+    }
+
+    /**
+     * Returns the number of bytes held by the columns, the seat bit region, the ID index and the dictionaries, including the
+     * room the arrays have grown into but not used yet. Array headers are counted as 16 bytes, and strings as their header,
+     * their array and one byte per Latin-1 character.
+     *
+     * @return the approximate heap footprint of the store in bytes
+     */
+    public synchronized long bytesUsed() {
+        int length = ids.length;
+        long bytes = 0;
+        bytes += 5 * (16 + 4L * length);
+        bytes += 2 * (16 + (long) length);
+        bytes += 4 * (16 + 8L * length);
+        bytes += 2 * (16 + 8L * length);
+        bytes += 16 + 8L * seatBits.length;
+        bytes += 16 + 4L * slotTable.length;
+        for (String city : cities) {
+            bytes += 24 + 16 + city.length() + 32;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the average footprint of a stored voyage, which can be compared with the heap used per {@code Bus}.
+     *
+     * @return bytes per stored voyage, or 0 if the store is empty
+     */
+    public synchronized double bytesPerVoyage() {
+        return storedVoyages == 0 ? 0 : (double) bytesUsed() / storedVoyages;
+    }
+
+    private Bus viewOf(int slot) {
+        SeatLayout layout = layouts.get(types[slot]);
+        String from = cities.get(fromCities[slot]);
+        String to = cities.get(toCities[slot]);
+        Bus bus;
+        if (layout == SeatLayout.STANDARD) {
+            bus = new StandardBus(ids[slot], from, to, rows[slot], prices[slot], refundCuts[slot]);
+        } else if (layout == SeatLayout.PREMIUM) {
+            bus = new PremiumBus(ids[slot], from, to, rows[slot], prices[slot], refundCuts[slot], premiumFees[slot]);
+        } else if (layout == SeatLayout.MINIBUS) {
+            bus = new Minibus(ids[slot], from, to, rows[slot], prices[slot]);
+        } else {
+            bus = new CoachBus(ids[slot], from, to, rows[slot], prices[slot], layout, refundCuts[slot], premiumFees[slot]);
+        }
+        boolean[] seats = Bus.ALL_FREE;
+        long offset = seatOffsets[slot];
+        int capacity = bus.getCapacity();
+        for (int index = 0; index < capacity; index++) {
+            long bit = offset + index;
+            if ((seatBits[(int) (bit >>> 6)] & (1L << bit)) != 0) {
+                if (seats == Bus.ALL_FREE) {
+                    seats = new boolean[capacity];
+                }
+                seats[index] = true;
+            }
+        }
+        bus.restore(seats, revenues[slot], holdsIssued[slot], versions[slot]);
+        return bus;
+    }
+
+    /**
+     * Assigns a new slot and a region of seat bits to a voyage and records the attributes that never change.
+     */
+    private int allocate(Bus bus) {
+        if (slots == ids.length) {
+            grow(ids.length * 2);
+        }
+        int slot = slots++;
+        ids[slot] = bus.getId();
+        types[slot] = layoutId(bus.getLayout());
+        rows[slot] = bus.getRows();
+        fromCities[slot] = cityId(bus.getFrom());
+        toCities[slot] = cityId(bus.getTo());
+        prices[slot] = bus.getPrice();
+        refundCuts[slot] = bus.getRefundCut();
+        premiumFees[slot] = bus.getPremiumFee();
+        seatOffsets[slot] = usedSeatBits;
+        usedSeatBits += bus.getCapacity();
+        ensureSeatBits(usedSeatBits);
+        index(bus.getId(), slot);
+        return slot;
+    }
+
+    /**
+     * Moves the slots in use to the front of the columns and packs their seat bits, once most slots have been freed.
+     */
+    private void compact() {
+        long[] oldBits = seatBits;
+        seatBits = new long[Math.max(64, (int) ((usedSeatBits + 63) >>> 6))];
+        usedSeatBits = 0;
+        slotTable = newSlotTable(slotTable.length);
+        int kept = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (states[slot] == FREE) {
+                continue;
+            }
+            int capacity = rows[slot] * layouts.get(types[slot]).getSeatsPerRow();
+            for (int index = 0; index < capacity; index++) {
+                long from = seatOffsets[slot] + index;
+                if ((oldBits[(int) (from >>> 6)] & (1L << from)) != 0) {
+                    long to = usedSeatBits + index;
+                    seatBits[(int) (to >>> 6)] |= 1L << to;
+                }
+            }
+            ids[kept] = ids[slot];
+            states[kept] = states[slot];
+            types[kept] = types[slot];
+            rows[kept] = rows[slot];
+            fromCities[kept] = fromCities[slot];
+            toCities[kept] = toCities[slot];
+            prices[kept] = prices[slot];
+            refundCuts[kept] = refundCuts[slot];
+            premiumFees[kept] = premiumFees[slot];
+            revenues[kept] = revenues[slot];
+            holdsIssued[kept] = holdsIssued[slot];
+            versions[kept] = versions[slot];
+            seatOffsets[kept] = usedSeatBits;
+            usedSeatBits += capacity;
+            index(ids[kept], kept);
+            kept++;
+        }
+        Arrays.fill(states, kept, slots, FREE);
+        slots = kept;
+        freeSlots = 0;
+    }
+
+    private byte layoutId(SeatLayout layout) {
+        int id = layouts.indexOf(layout);
+        if (id < 0) {
+            id = layouts.size();
+            layouts.add(layout);
+        }
+        return (byte) id;
+    }
+
+    private int cityId(String city) {
+        Integer id = cityIds.get(city);
+        if (id == null) {
+            id = cities.size();
+            cities.add(city);
+            cityIds.put(city, id);
+        }
+        return id;
+    }
+
+    private void grow(int length) {
+        ids = Arrays.copyOf(ids, length);
+        states = Arrays.copyOf(states, length);
+        types = Arrays.copyOf(types, length);
+        rows = Arrays.copyOf(rows, length);
+        fromCities = Arrays.copyOf(fromCities, length);
+        toCities = Arrays.copyOf(toCities, length);
+        prices = Arrays.copyOf(prices, length);
+        refundCuts = Arrays.copyOf(refundCuts, length);
+        premiumFees = Arrays.copyOf(premiumFees, length);
+        revenues = Arrays.copyOf(revenues, length);
+        holdsIssued = Arrays.copyOf(holdsIssued, length);
+        versions = Arrays.copyOf(versions, length);
+        seatOffsets = Arrays.copyOf(seatOffsets, length);
+    }
+
+    private void ensureSeatBits(long bits) {
+        long words = (bits + 63) >>> 6;
+        if (words > seatBits.length) {
+            seatBits = Arrays.copyOf(seatBits, (int) Math.max(words, seatBits.length * 2L));
+        }
+    }
+
+    private static int[] newSlotTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the slot of a voyage in the open addressing ID index, which stores (id, slot) pairs side by side.
+     * Removed entries keep their place with slot -2 so that probe chains stay intact.
+     *
+     * @return the slot of the voyage, or -1 if the store has no slot for that ID
+     */
+    private int slotOf(int id) {
+        int mask = slotTable.length / 2 - 1;
+        for (int i = mix(id) & mask; ; i = (i + 1) & mask) {
+            int slot = slotTable[2 * i + 1];
+            if (slot == -1) {
+                return -1;
+            }
+            if (slotTable[2 * i] == id && slot >= 0) {
+                return slot;
+            }
+        }
+    }
+
+    private void index(int id, int slot) {
+        if ((slots + freeSlots) * 2 > slotTable.length / 2) {
+            int[] old = slotTable;
+            slotTable = newSlotTable(old.length * 2);
+            for (int i = 0; i < old.length; i += 2) {
+                if (old[i + 1] >= 0) {
+                    insert(old[i], old[i + 1]);
+                }
+            }
+        }
+        insert(id, slot);
+    }
+
+    private void insert(int id, int slot) {
+        int mask = slotTable.length / 2 - 1;
+        int i = mix(id) & mask;
+        while (slotTable[2 * i + 1] >= 0) {
+            i = (i + 1) & mask;
+        }
+        slotTable[2 * i] = id;
+        slotTable[2 * i + 1] = slot;
+    }
+
+    private void unindex(int id) {
+        int mask = slotTable.length / 2 - 1;
+        for (int i = mix(id) & mask; slotTable[2 * i + 1] != -1; i = (i + 1) & mask) {
+            if (slotTable[2 * i] == id && slotTable[2 * i + 1] >= 0) {
+                slotTable[2 * i + 1] = -2;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+/**
+ * The {@code Waitlist} class keeps the requests waiting for seats of a full voyage, together with the seats that were freed
+ * for them. Requests are served by descending priority and, within the same priority, in the order they arrived.
+ * Freed seats are collected as they are released. The seats that were already empty when the first request joined are not
+ * collected; they are found by a cursor that only moves forward over the seat map, once a promotion is certain to succeed.
+ */
+public class Waitlist {
+    /**
+     * A request waiting for a number of seats of a voyage.
+     */
+    public static class Request implements Comparable<Request> {
+        private final int number;
+        private final int seatCount;
+        private final int priority;
+
+        public Request(int number, int seatCount, int priority) {
+            this.number = number;
+            this.seatCount = seatCount;
+            this.priority = priority;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public int getSeatCount() {
+            return seatCount;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Integer.compare(number, other.number);
+        }
+    }
+
+    private final PriorityQueue<Request> requests = new PriorityQueue<>();
+    private final ArrayDeque<Integer> freedSeats = new ArrayDeque<>();
+    private int scannedSeats = 0;
+    private int nextNumber = 1;
+
+    /**
+     * Adds a request to the waitlist.
+     *
+     * @param seatCount the number of seats the request waits for
+     * @param priority  the priority of the request, higher priorities are served first
+     * @return the added request
+     */
+    public Request add(int seatCount, int priority) {
+        Request request = new Request(nextNumber++, seatCount, priority);
+        requests.add(request);
+        return request;
+    }
+
+    /**
+     * Records a seat that became empty, so that it can be offered to the waiting requests.
+     * Seats are not recorded while nobody is waiting.
+     *
+     * @param index the zero based index of the seat
+     */
+    public void seatFreed(int index) {
+        if (!requests.isEmpty()) {
+            freedSeats.add(index);
+        }
+    }
+
+    public Request peek() {
+        return requests.peek();
+    }
+
+    public Request poll() {
+        Request request = requests.poll();
+        clearIfEmpty();
+        return request;
+    }
+
+    /**
+     * Removes a waiting request.
+     *
+     * @param number the number the request was given when it joined
+     * @return the removed request, or null if no request with that number is waiting
+     */
+    public Request cancel(int number) {
+        for (Request request : requests) {
+            if (request.getNumber() == number) {
+                requests.remove(request);
+                clearIfEmpty();
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void clearIfEmpty() {
+        if (requests.isEmpty()) {
+            freedSeats.clear();
+            scannedSeats = 0;
+        }
+    }
+
+    /**
+     * Moves the cursor over the seat map one seat forward. Seats behind the cursor that become empty again are recorded as
+     * freed seats, so every empty seat is either a freed seat or lies ahead of the cursor.
+     *
+     * @param capacity the number of seats of the voyage
+     * @return the zero based index of the next seat to look at, or -1 if the cursor has passed the last seat
+     */
+    public int nextUnscannedSeat(int capacity) {
+        return scannedSeats < capacity ? scannedSeats++ : -1;
+    }
+
+    public ArrayDeque<Integer> getFreedSeats() {
+        return freedSeats;
+    }
+
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+}
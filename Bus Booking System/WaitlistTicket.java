@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+/**
+ * The {@code WaitlistTicket} class handles the waitlists of full voyages within the booking system.
+ * Requests are added to the waitlist of a voyage when fewer seats are left than they ask for, and are promoted into seats
+ * automatically as soon as refunds or expired holds free enough seats, so clients do not need to poll the voyage.
+ * While requests wait, the empty seats of the voyage are reserved for them: they are neither sold nor held directly.
+ * A request never asks for more seats than can still become empty, and a waiting request can be cancelled, so the reserved
+ * seats are released as soon as nobody is left waiting.
+ */
+public class WaitlistTicket {
+    /**
+     * Adds a request for a number of seats to the waitlist of a voyage that has fewer empty seats than requested.
+     *
+     * @param busId The ID of the bus whose waitlist the request joins.
+     * @param seatCount The number of seats requested.
+     * @param priority The priority of the request, or null for the default priority, which keeps requests in arrival order.
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    public static void waitlister(int busId, String seatCount, String priority, String[] args) {
+        Bus bus = BookingSystem.getBusById(busId);
+        if (bus == null) {
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
+            return;
+        }
+        bus.beginUpdate();
+        try {
+            waitlist(bus, seatCount, priority, args);
+        } finally {
+            bus.endUpdate();
+        }
+    }
+
+    private static void waitlist(Bus bus, String seatCount, String priority, String[] args) {
+        int busId = bus.getId();
+        int seats;
+        try {
+            seats = Integer.parseInt(seatCount);
+        } catch (NumberFormatException e) {
+            seats = 0;
+        }
+        if (seats <= 0) {
+            FileOutput.writeToFile(args[1], "ERROR: " + seatCount + " is not a positive integer, number of seats must be a positive integer!", true, true);
+            return;
+        }
+        int requestPriority = 0;
+        if (priority != null) {
+            try {
+                requestPriority = Integer.parseInt(priority);
+            } catch (NumberFormatException e) {
+                FileOutput.writeToFile(args[1], "ERROR: " + priority + " is not an integer, priority must be an integer!", true, true);
+                return;
+            }
+        }
+        if (seats > bus.getCapacity()) {
+            FileOutput.writeToFile(args[1], "ERROR: Voyage " + busId + " does not have " + seats + " seats!", true, true);
+            return;
+        }
+        if (seats > bus.getFreeableSeats()) {
+            FileOutput.writeToFile(args[1], unservableError(bus), true, true);
+            return;
+        }
+        if (!bus.hasWaitlist() && bus.getEmptySeats() >= seats) {
+            FileOutput.writeToFile(args[1], "ERROR: Voyage " + busId + " still has empty seats, tickets can be sold directly!", true, true);
+            return;
+        }
+
+        Waitlist.Request request = bus.getWaitlist().add(seats, requestPriority);
+        String added = String.format(Locale.US, "Request %d for %d seats was added to the waitlist of the Voyage %d from %s to %s.",
+                request.getNumber(), seats, bus.getId(), bus.getFrom(), bus.getTo());
+        FileOutput.writeToFile(args[1], added, true, true);
+        // A request of a higher priority may fit into the seats reserved for the requests it overtook.
+        promote(bus, args);
+    }
+
+    /**
+     * Removes a waiting request from the waitlist of a voyage, releasing the seats reserved for it once nobody is left waiting.
+     *
+     * @param busId The ID of the bus whose waitlist the request waits in.
+     * @param requestNumber The number the request was given when it joined the waitlist.
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    public static void canceller(int busId, String requestNumber, String[] args) {
+        Bus bus = BookingSystem.getBusById(busId);
+        if (bus == null) {
+            FileOutput.writeToFile(args[1], BookingSystem.missingVoyageError(busId), true, true);
+            return;
+        }
+        bus.beginUpdate();
+        try {
+            cancel(bus, requestNumber, args);
+        } finally {
+            bus.endUpdate();
+        }
+    }
+
+    private static void cancel(Bus bus, String requestNumber, String[] args) {
+        int number;
+        try {
+            number = Integer.parseInt(requestNumber);
+        } catch (NumberFormatException e) {
+            number = 0;
+        }
+        if (number <= 0) {
+            FileOutput.writeToFile(args[1], "ERROR: " + requestNumber + " is not a positive integer, request number must be a positive integer!", true, true);
+            return;
+        }
+        Waitlist.Request request = bus.hasWaitlist() ? bus.getWaitlist().cancel(number) : null;
+        if (request == null) {
+            FileOutput.writeToFile(args[1], "ERROR: There is no request " + number + " in the waitlist of the Voyage " + bus.getId() + "!", true, true);
+            return;
+        }
+        String cancelled = String.format(Locale.US, "Request %d for %d seats was removed from the waitlist of the Voyage %d from %s to %s.",
+                request.getNumber(), request.getSeatCount(), bus.getId(), bus.getFrom(), bus.getTo());
+        FileOutput.writeToFile(args[1], cancelled, true, true);
+        // The requests behind it may fit into the seats that were reserved for it.
+        promote(bus, args);
+    }
+
+    /**
+     * Describes why a voyage cannot serve a request for more seats than can still become empty.
+     *
+     * @param bus The bus whose sold tickets cannot be refunded.
+     * @return The error line.
+     */
+    private static String unservableError(Bus bus) {
+        return "ERROR: Only " + bus.getFreeableSeats() + " seats of the Voyage " + bus.getId() + " can still become empty, since "
+                + bus.getLayout().getName() + " tickets are not refundable!";
+    }
+
+    /**
+     * Describes why the empty seats of a voyage with waiting requests cannot be sold or held directly.
+     *
+     * @param bus The bus whose waitlist is not empty.
+     * @return The error line.
+     */
+    static String reservedError(Bus bus) {
+        return "ERROR: The empty seats of the Voyage " + bus.getId() + " are reserved for its waitlist!";
+    }
+
+    /**
+     * Sells empty seats to the waiting requests, in waitlist order.
+     * A request is only promoted once enough seats are empty for all of it; requests behind it keep waiting as well. Whether
+     * the first request fits is decided by the count of empty seats, and only then are the seats looked up, so the work done
+     * is proportional to the number of freed and promoted seats. A request that can no longer be served because seats of a
+     * voyage without refunds were sold in the meantime is dropped, so it does not keep the empty seats reserved.
+     *
+     * @param bus The bus whose waitlist is promoted.
+     * @param args Command-line arguments used for specifying output paths for logging.
+     */
+    public static void promote(Bus bus, String[] args) {
+        if (!bus.hasWaitlist()) {
+            return;
+        }
+        Waitlist waitlist = bus.getWaitlist();
+        while (!waitlist.isEmpty()) {
+            Waitlist.Request request = waitlist.peek();
+            if (request.getSeatCount() > bus.getEmptySeats()) {
+                if (request.getSeatCount() > bus.getFreeableSeats()) {
+                    waitlist.poll();
+                    String dropped = String.format(Locale.US, "Waitlisted request %d of the Voyage %d from %s to %s was dropped. %s",
+                            request.getNumber(), bus.getId(), bus.getFrom(), bus.getTo(), unservableError(bus).substring("ERROR: ".length()));
+                    FileOutput.writeToFile(args[1], dropped, true, true);
+                    continue;
+                }
+                return;
+            }
+            List<Integer> taken = new ArrayList<>();
+            BitSet seen = new BitSet();
+            while (taken.size() < request.getSeatCount() && !waitlist.getFreedSeats().isEmpty()) {
+                int index = waitlist.getFreedSeats().poll();
+                // A freed seat may have been sold or held again since it was freed.
+                if (!bus.isSold(index) && !bus.isHeld(index) && !seen.get(index)) {
+                    seen.set(index);
+                    taken.add(index);
+                }
+            }
+            while (taken.size() < request.getSeatCount()) {
+                int index = waitlist.nextUnscannedSeat(bus.getCapacity());
+                if (index < 0) {
+                    break;
+                }
+                if (!bus.isSold(index) && !bus.isHeld(index) && !seen.get(index)) {
+                    seen.set(index);
+                    taken.add(index);
+                }
+            }
+            if (taken.size() < request.getSeatCount()) {
+                for (int i = taken.size() - 1; i >= 0; i--) {
+                    waitlist.getFreedSeats().addFirst(taken.get(i));
+                }
+                return;
+            }
+
+            StringBuilder soldSeats = new StringBuilder();
+            double totalCost = 0.0;
+            try {
+                for (int index : taken) {
+                    bus.sellSeat(index + 1);
+                    totalCost += SellTicket.seatPrice(bus, index + 1);
+                    if (soldSeats.length() > 0) {
+                        soldSeats.append("-");
+                    }
+                    soldSeats.append(index + 1);
+                }
+            } catch (Exception e) {
+                FileOutput.writeToFile(args[1], e.getMessage(), true, true);
+                return;
+            }
+            waitlist.poll();
+            String promoted = String.format(Locale.US, "Waitlisted request %d of the Voyage %d from %s to %s was promoted to seat %s for %.2f TL.",
+                    request.getNumber(), bus.getId(), bus.getFrom(), bus.getTo(), soldSeats, totalCost);
+            FileOutput.writeToFile(args[1], promoted, true, true);
+        }
+    }
+}